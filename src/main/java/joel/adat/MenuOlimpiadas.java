@@ -1,28 +1,44 @@
 package joel.adat;
 
 import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 import joel.adat.dao.*;
 import joel.adat.model.*;
 
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 public class MenuOlimpiadas {
+    // Filas por transacción en la carga inicial por JDBC
+    private static final int TAM_LOTE_JDBC = 5000;
+
     /**
      * main
      * @param args
      */
     public static void main(String[] args) {
+        // Hibernate arranca en segundo plano mientras se muestra el menú
+        HibernateUtil.arrancarEnSegundoPlano();
+        // Las cachés de referencia se llenan también en segundo plano, desde la instantánea si es válida
+        CalentamientoCaches.calentarEnSegundoPlano();
         Scanner scanner = new Scanner(System.in);
         int opcion;
+        boolean primeraVez = true;
 
         do {
             // Mostrar el menú
@@ -33,7 +49,22 @@ public class MenuOlimpiadas {
             System.out.println("4. Modificar medalla deportista");
             System.out.println("5. Añadir deportista/participación");
             System.out.println("6. Eliminar participación");
+            System.out.println("7. Carga masiva del CSV");
+            System.out.println("8. Carga en paralelo del CSV");
+            System.out.println("9. Carga del CSV por bloques");
+            System.out.println("10. Actualizar BBDD con una nueva edición del CSV");
+            System.out.println("11. Carga inicial rápida por JDBC");
+            System.out.println("12. Carga en paralelo de un directorio de CSV");
+            System.out.println("13. Ver métricas de los pools de conexiones");
+            System.out.println("14. Ver estadísticas de las cachés");
+            System.out.println("15. Exportar a CSV los deportistas que contienen un nombre");
             System.out.println("0. Terminar programa");
+            if (primeraVez) {
+                primeraVez = false;
+                System.out.println("(Menú mostrado " + ManagementFactory.getRuntimeMXBean().getUptime()
+                        + " ms después de arrancar; Hibernate " + (HibernateUtil.estaListo()
+                        ? "listo en " + HibernateUtil.getMsArranque() + " ms)" : "todavía arrancando)"));
+            }
             System.out.print("Seleccione una opción: ");
             opcion = scanner.nextInt();
             scanner.nextLine(); // Limpiar el buffer
@@ -45,7 +76,10 @@ public class MenuOlimpiadas {
                     DaoCrearTablaDocker.crearLaBBDD(path);
                     break;
                 case 2:
-                    ListDifferentSportsDeportists();
+                    try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+                        ListDifferentSportsDeportists();
+                        unidad.confirmar();
+                    }
 
                     break;
                 case 3:
@@ -84,7 +118,7 @@ public class MenuOlimpiadas {
                             lstOlimpiada.get(resp - 1).getAnio(),
                             temporada, lstOlimpiada.get(resp - 1).getCiudad()));
 
-                    ArrayList<ModeloDeporte> lstDeporte = DaoDeporte.listaDeportesPorOlimpiada(idOlimpiada);
+                    List<ModeloDeporte> lstDeporte = DaoDeporte.listaDeportesPorOlimpiada(idOlimpiada);
 
                     do {
                         System.out.println("\n==============================");
@@ -99,7 +133,7 @@ public class MenuOlimpiadas {
 
                     idDeporte = Integer
                             .parseInt(DaoDeporte.conseguirIdDeporte(lstDeporte.get(resp - 1).getNombreDeporte()));
-                    ArrayList<ModeloEvento> lstEventos = DaoEvento.crearListaModelosPorDeporteYOlimpiada(idDeporte,
+                    List<ModeloEvento> lstEventos = DaoEvento.crearListaModelosPorDeporteYOlimpiada(idDeporte,
                             idOlimpiada);
 
                     do {
@@ -113,27 +147,29 @@ public class MenuOlimpiadas {
                         scanner.nextLine();
                     } while (resp < 1 || resp > lstEventos.size());
 
-                    idEvento = Integer.parseInt(DaoEvento.conseguirIdEvento(
-                            lstEventos.get(resp - 1).getNombreEvento(), idOlimpiada, idDeporte));
+                    // El resumen final se lee en una sola sesión de solo lectura
+                    try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+                        idEvento = Integer.parseInt(DaoEvento.conseguirIdEvento(
+                                lstEventos.get(resp - 1).getNombreEvento(), idOlimpiada, idDeporte));
 
-                    System.out.println("\n==============================");
-                    System.out.println("   Resumen Final:");
-                    System.out.println("==============================");
-                    System.out.println("   Temporada: " + temporada);
-                    System.out.println("   Olimpiada: " + DaoOlimpiada.createOlimpiadaModel(idOlimpiada));
-                    System.out.println("   Deporte: " + DaoDeporte.createDeporteModel(idDeporte));
-                    System.out.println("   Evento: " + DaoEvento.createById(idEvento));
-                    System.out.println("==============================");
+                        System.out.println("\n==============================");
+                        System.out.println("   Resumen Final:");
+                        System.out.println("==============================");
+                        System.out.println("   Temporada: " + temporada);
+                        System.out.println("   Olimpiada: " + DaoOlimpiada.createOlimpiadaModel(idOlimpiada));
+                        System.out.println("   Deporte: " + DaoDeporte.createDeporteModel(idDeporte));
+                        System.out.println("   Evento: " + DaoEvento.createById(idEvento));
+                        System.out.println("==============================");
 
-                    System.out.println("\n==============================");
-                    System.out.println("   Deportistas Participantes:");
-                    System.out.println("==============================");
+                        System.out.println("\n==============================");
+                        System.out.println("   Deportistas Participantes:");
+                        System.out.println("==============================");
 
-                    ArrayList<String> lstIdDeportistas = DaoParticipacion.darIdDeportista(idEvento);
-                    for (String deportista : lstIdDeportistas) {
-                        ModeloParticipacion participacion = DaoParticipacion.crearModeloParticipacion(
-                                Integer.parseInt(deportista), idEvento);
-                        System.out.println("   " + participacion.toString());
+                        // Una sola consulta devuelve ya los datos de cada participante
+                        for (ParticipanteEvento participante : DaoParticipacion.participantesEvento(idEvento)) {
+                            System.out.println("   " + participante.toString());
+                        }
+                        unidad.confirmar();
                     }
 
                     System.out.println("\n==============================");
@@ -147,27 +183,20 @@ public class MenuOlimpiadas {
                     System.out.println("   Busca el Deportista por Nombre:");
                     System.out.println("==============================");
                     String nombre = scanner.nextLine();
-                    ArrayList<ModeloDeportista> lstDeportistas = DaoDeportista.findDeportistaName(nombre);
-
-                    if (lstDeportistas.size() > 0) {
-                        do {
-                            System.out.println("\n==============================");
-                            System.out.println("   Elige el Deportista (usando el número):");
-                            System.out.println("==============================");
-                            for (int i = 0; i < lstDeportistas.size(); i++) {
-                                System.out.println((i + 1) + ": " + lstDeportistas.get(i).getNombreDeportista());
-                            }
-                            resp = scanner.nextInt();
-                            scanner.nextLine();
-                        } while (resp < 1 || resp > lstDeportistas.size());
-
-                        ModeloDeportista deportista = lstDeportistas.get(resp - 1);
-                        lstEventos = DaoEvento.listaModelosPorId(DaoParticipacion.getIdEvento(
-                                Integer.parseInt(DaoDeportista.conseguirIdDeportista(
-                                        lstDeportistas.get(resp - 1).getNombreDeportista(),
-                                        lstDeportistas.get(resp - 1).getSexo(),
-                                        lstDeportistas.get(resp - 1).getPeso(),
-                                        lstDeportistas.get(resp - 1).getAltura()))));
+                    ModeloDeportista deportista = elegirDeportista(scanner, nombre,
+                            "   Elige el Deportista (usando el número):");
+
+                    if (deportista != null) {
+                        // Las búsquedas sin preguntas al usuario comparten una sesión de solo lectura
+                        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+                            lstEventos = DaoEvento.listaModelosPorId(DaoParticipacion.getIdEvento(
+                                    Integer.parseInt(DaoDeportista.conseguirIdDeportista(
+                                            deportista.getNombreDeportista(),
+                                            deportista.getSexo(),
+                                            deportista.getPeso(),
+                                            deportista.getAltura()))));
+                            unidad.confirmar();
+                        }
 
                         do {
                             System.out.println("\n==============================");
@@ -180,15 +209,19 @@ public class MenuOlimpiadas {
                             scanner.nextLine();
                         } while (resp < 1 || resp > lstEventos.size());
 
-                        ModeloEvento evento = DaoEvento.createById(Integer.parseInt(DaoEvento.conseguirIdEvento(
-                                lstEventos.get(resp - 1).getNombreEvento(),
-                                Integer.parseInt(DaoOlimpiada.conseguirIdOlimpiada(
-                                        lstEventos.get(resp - 1).getOlimpiada().getNombreOlimpiada(),
-                                        lstEventos.get(resp - 1).getOlimpiada().getAnio(),
-                                        lstEventos.get(resp - 1).getOlimpiada().getTemporada(),
-                                        lstEventos.get(resp - 1).getOlimpiada().getCiudad())),
-                                Integer.parseInt(DaoDeporte.conseguirIdDeporte(
-                                        lstEventos.get(resp - 1).getDeporte().getNombreDeporte())))));
+                        ModeloEvento evento;
+                        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+                            evento = DaoEvento.createById(Integer.parseInt(DaoEvento.conseguirIdEvento(
+                                    lstEventos.get(resp - 1).getNombreEvento(),
+                                    Integer.parseInt(DaoOlimpiada.conseguirIdOlimpiada(
+                                            lstEventos.get(resp - 1).getOlimpiada().getNombreOlimpiada(),
+                                            lstEventos.get(resp - 1).getOlimpiada().getAnio(),
+                                            lstEventos.get(resp - 1).getOlimpiada().getTemporada(),
+                                            lstEventos.get(resp - 1).getOlimpiada().getCiudad())),
+                                    Integer.parseInt(DaoDeporte.conseguirIdDeporte(
+                                            lstEventos.get(resp - 1).getDeporte().getNombreDeporte())))));
+                            unidad.confirmar();
+                        }
 
                         do {
                             System.out.println("\n==============================");
@@ -218,22 +251,25 @@ public class MenuOlimpiadas {
                                 break;
                         }
 
-                        DaoParticipacion.editMedal(
-                                Integer.parseInt(DaoDeportista.conseguirIdDeportista(
-                                        deportista.getNombreDeportista(),
-                                        deportista.getSexo(),
-                                        deportista.getPeso(),
-                                        deportista.getAltura())),
-                                Integer.parseInt(DaoEvento.conseguirIdEvento(
-                                        evento.getNombreEvento(),
-                                        Integer.parseInt(DaoOlimpiada.conseguirIdOlimpiada(
-                                                evento.getOlimpiada().getNombreOlimpiada(),
-                                                evento.getOlimpiada().getAnio(),
-                                                evento.getOlimpiada().getTemporada(),
-                                                evento.getOlimpiada().getCiudad())),
-                                        Integer.parseInt(DaoDeporte.conseguirIdDeporte(
-                                                evento.getDeporte().getNombreDeporte())))),
-                                medalla);
+                        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+                            DaoParticipacion.editMedal(
+                                    Integer.parseInt(DaoDeportista.conseguirIdDeportista(
+                                            deportista.getNombreDeportista(),
+                                            deportista.getSexo(),
+                                            deportista.getPeso(),
+                                            deportista.getAltura())),
+                                    Integer.parseInt(DaoEvento.conseguirIdEvento(
+                                            evento.getNombreEvento(),
+                                            Integer.parseInt(DaoOlimpiada.conseguirIdOlimpiada(
+                                                    evento.getOlimpiada().getNombreOlimpiada(),
+                                                    evento.getOlimpiada().getAnio(),
+                                                    evento.getOlimpiada().getTemporada(),
+                                                    evento.getOlimpiada().getCiudad())),
+                                            Integer.parseInt(DaoDeporte.conseguirIdDeporte(
+                                                    evento.getDeporte().getNombreDeporte())))),
+                                    medalla);
+                            unidad.confirmar();
+                        }
 
                         System.out.println("\n==============================");
                         System.out.println("   Medalla asignada con éxito.");
@@ -249,30 +285,18 @@ public class MenuOlimpiadas {
                 case 5:
                     int idDeportista = 0;
                     resp = 0;
-                    ModeloDeportista deportista;
+                    char sexoNuevo = 'M';
+                    int pesoNuevo = 0;
+                    int alturaNuevo = 0;
 
                     System.out.println("\n==============================");
                     System.out.println("    Buscar Deportista");
                     System.out.println("==============================");
                     System.out.print("Dime el nombre a buscar: ");
                     nombre = scanner.nextLine();
-                    lstDeportistas = DaoDeportista.findDeportistaName(nombre);
+                    deportista = elegirDeportista(scanner, nombre, "    Elige al Deportista");
 
-                    if (lstDeportistas.size() > 0) {
-                        do {
-                            System.out.println("\n==============================");
-                            System.out.println("    Elige al Deportista");
-                            System.out.println("==============================");
-                            for (int i = 0; i < lstDeportistas.size(); i++) {
-                                System.out
-                                        .println("   " + (i + 1) + ": " + lstDeportistas.get(i).getNombreDeportista());
-                            }
-                            System.out.print("Selecciona el número: ");
-                            resp = scanner.nextInt();
-                            scanner.nextLine();
-                        } while (resp < 1 || resp > lstDeportistas.size());
-                        deportista = lstDeportistas.get(resp - 1);
-                    } else {
+                    if (deportista == null) {
                         System.out.println("\nNo hay ningún deportista con ese nombre. Se creará uno nuevo.");
                         System.out.print("Dime el nombre completo: ");
                         nombre = scanner.nextLine();
@@ -288,30 +312,19 @@ public class MenuOlimpiadas {
                             sexo = scanner.nextInt();
                             scanner.nextLine();
                         } while (sexo != 1 && sexo != 2);
+                        if (sexo == 2) {
+                            sexoNuevo = 'F';
+                        }
 
                         System.out.print("¿Cuánto pesa? ");
-                        int peso = Math.round(scanner.nextFloat());
+                        pesoNuevo = Math.round(scanner.nextFloat());
                         scanner.nextLine();
 
                         System.out.print("¿Cuánto mide (en cm)? ");
-                        int altura = scanner.nextInt();
+                        alturaNuevo = scanner.nextInt();
                         scanner.nextLine();
-
-                        if (sexo == 1) {
-                            DaoDeportista.aniadirDeportista(nombre, 'M', peso, altura);
-                            deportista = DaoDeportista.createDeportistaModel(
-                                    DaoDeportista.conseguirIdDeportista(nombre, 'M', peso, altura));
-                        } else {
-                            DaoDeportista.aniadirDeportista(nombre, 'F', peso, altura);
-                            deportista = DaoDeportista.createDeportistaModel(
-                                    DaoDeportista.conseguirIdDeportista(nombre, 'F', peso, altura));
-                        }
                     }
 
-                    idDeportista = Integer
-                            .parseInt(DaoDeportista.conseguirIdDeportista(deportista.getNombreDeportista(),
-                                    deportista.getSexo(), deportista.getPeso(), deportista.getAltura()));
-
                     do {
                         System.out.println("\n==============================");
                         System.out.println("    Selecciona la Temporada");
@@ -410,24 +423,37 @@ public class MenuOlimpiadas {
                     System.out.print("Dime su abreviación: ");
                     String abreviacion = scanner.nextLine();
 
-                    if (DaoEquipo.conseguirIdEquipo(nombreEquipo, abreviacion) == null) {
-                        DaoEquipo.aniadirEquipo(nombreEquipo, abreviacion);
-                    }
+                    // El deportista nuevo, el equipo y la participación se guardan en una sola transacción
+                    try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+                        if (deportista == null) {
+                            DaoDeportista.aniadirDeportista(nombre, sexoNuevo, pesoNuevo, alturaNuevo);
+                            deportista = DaoDeportista.createDeportistaModel(
+                                    DaoDeportista.conseguirIdDeportista(nombre, sexoNuevo, pesoNuevo, alturaNuevo));
+                        }
+                        idDeportista = Integer
+                                .parseInt(DaoDeportista.conseguirIdDeportista(deportista.getNombreDeportista(),
+                                        deportista.getSexo(), deportista.getPeso(), deportista.getAltura()));
+
+                        if (DaoEquipo.conseguirIdEquipo(nombreEquipo, abreviacion) == null) {
+                            DaoEquipo.aniadirEquipo(nombreEquipo, abreviacion);
+                        }
 
-                    int idEquipo = Integer.parseInt(DaoEquipo.conseguirIdEquipo(nombreEquipo, abreviacion));
+                        int idEquipo = Integer.parseInt(DaoEquipo.conseguirIdEquipo(nombreEquipo, abreviacion));
 
-                    System.out.println("\n==============================");
-                    System.out.println("    Datos Finales de Participación");
-                    System.out.println("==============================");
-                    System.out.println("ID Evento: " + idEvento);
-                    System.out.println("ID Equipo: " + idEquipo);
-                    System.out.println("ID Deportista: " + idDeportista);
-
-                    try {
-                        DaoParticipacion.aniadirParticipacion(idDeportista, idEvento, idEquipo, edad, medalla);
-                        System.out.println("\nParticipación añadida correctamente.");
-                    } catch (Exception e) {
-                        System.out.println("\nError: Esa participación ya está en la base de datos.");
+                        System.out.println("\n==============================");
+                        System.out.println("    Datos Finales de Participación");
+                        System.out.println("==============================");
+                        System.out.println("ID Evento: " + idEvento);
+                        System.out.println("ID Equipo: " + idEquipo);
+                        System.out.println("ID Deportista: " + idDeportista);
+
+                        try {
+                            DaoParticipacion.aniadirParticipacion(idDeportista, idEvento, idEquipo, edad, medalla);
+                            System.out.println("\nParticipación añadida correctamente.");
+                        } catch (Exception e) {
+                            System.out.println("\nError: Esa participación ya está en la base de datos.");
+                        }
+                        unidad.confirmar();
                     }
                     break;
                 case 6:
@@ -438,43 +464,34 @@ public class MenuOlimpiadas {
                     System.out.print("Dime el nombre a buscar: ");
                     nombre = scanner.nextLine();
 
-                    lstDeportistas = DaoDeportista.findDeportistaName(nombre);
+                    deportista = elegirDeportista(scanner, nombre, "   Selección de Deportista");
+
+                    if (deportista != null) {
+                        // El ID del deportista y sus eventos se leen en la misma sesión
+                        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+                            idDeportista = Integer.parseInt(
+                                    DaoDeportista.conseguirIdDeportista(
+                                            deportista.getNombreDeportista(),
+                                            deportista.getSexo(),
+                                            deportista.getPeso(),
+                                            deportista.getAltura()
+                                    )
+                            );
 
-                    if (lstDeportistas.size() > 0) {
-                        do {
-                            System.out.println("\n==============================");
-                            System.out.println("   Selección de Deportista");
-                            System.out.println("==============================");
-                            for (int i = 0; i < lstDeportistas.size(); i++) {
-                                System.out.println("   " + (i + 1) + ": " + lstDeportistas.get(i).getNombreDeportista());
-                            }
-                            System.out.print("Elige el número correspondiente: ");
-                            resp = scanner.nextInt();
-                            scanner.nextLine();
-                        } while (resp < 1 || resp > lstDeportistas.size());
-
-                        deportista = lstDeportistas.get(resp - 1);
-                        idDeportista = Integer.parseInt(
-                                DaoDeportista.conseguirIdDeportista(
-                                        deportista.getNombreDeportista(),
-                                        deportista.getSexo(),
-                                        deportista.getPeso(),
-                                        deportista.getAltura()
-                                )
-                        );
-
-                        lstEventos = DaoEvento.listaModelosPorId(
-                                DaoParticipacion.getIdEvento(
-                                        Integer.parseInt(
-                                                DaoDeportista.conseguirIdDeportista(
-                                                        lstDeportistas.get(resp - 1).getNombreDeportista(),
-                                                        lstDeportistas.get(resp - 1).getSexo(),
-                                                        lstDeportistas.get(resp - 1).getPeso(),
-                                                        lstDeportistas.get(resp - 1).getAltura()
-                                                )
-                                        )
-                                )
-                        );
+                            lstEventos = DaoEvento.listaModelosPorId(
+                                    DaoParticipacion.getIdEvento(
+                                            Integer.parseInt(
+                                                    DaoDeportista.conseguirIdDeportista(
+                                                            deportista.getNombreDeportista(),
+                                                            deportista.getSexo(),
+                                                            deportista.getPeso(),
+                                                            deportista.getAltura()
+                                                    )
+                                            )
+                                    )
+                            );
+                            unidad.confirmar();
+                        }
 
                         if (lstEventos.size() > 0) {
                             do {
@@ -489,47 +506,51 @@ public class MenuOlimpiadas {
                                 scanner.nextLine();
                             } while (resp < 1 || resp > lstEventos.size());
 
-                            ModeloEvento evento = DaoEvento.createById(
-                                    Integer.parseInt(
-                                            DaoEvento.conseguirIdEvento(
-                                                    lstEventos.get(resp - 1).getNombreEvento(),
-                                                    Integer.parseInt(
-                                                            DaoOlimpiada.conseguirIdOlimpiada(
-                                                                    lstEventos.get(resp - 1).getOlimpiada().getNombreOlimpiada(),
-                                                                    lstEventos.get(resp - 1).getOlimpiada().getAnio(),
-                                                                    lstEventos.get(resp - 1).getOlimpiada().getTemporada(),
-                                                                    lstEventos.get(resp - 1).getOlimpiada().getCiudad()
-                                                            )
-                                                    ),
-                                                    Integer.parseInt(
-                                                            DaoDeporte.conseguirIdDeporte(
-                                                                    lstEventos.get(resp - 1).getDeporte().getNombreDeporte()
-                                                            )
-                                                    )
-                                            )
-                                    )
-                            );
-
-                            idEvento = Integer.parseInt(
-                                    DaoEvento.conseguirIdEvento(
-                                            evento.getNombreEvento(),
-                                            Integer.parseInt(
-                                                    DaoOlimpiada.conseguirIdOlimpiada(
-                                                            evento.getOlimpiada().getNombreOlimpiada(),
-                                                            evento.getOlimpiada().getAnio(),
-                                                            evento.getOlimpiada().getTemporada(),
-                                                            evento.getOlimpiada().getCiudad()
-                                                    )
-                                            ),
-                                            Integer.parseInt(
-                                                    DaoDeporte.conseguirIdDeporte(
-                                                            evento.getDeporte().getNombreDeporte()
-                                                    )
-                                            )
-                                    )
-                            );
+                            // La búsqueda del evento y el borrado van en una sola transacción
+                            try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+                                ModeloEvento evento = DaoEvento.createById(
+                                        Integer.parseInt(
+                                                DaoEvento.conseguirIdEvento(
+                                                        lstEventos.get(resp - 1).getNombreEvento(),
+                                                        Integer.parseInt(
+                                                                DaoOlimpiada.conseguirIdOlimpiada(
+                                                                        lstEventos.get(resp - 1).getOlimpiada().getNombreOlimpiada(),
+                                                                        lstEventos.get(resp - 1).getOlimpiada().getAnio(),
+                                                                        lstEventos.get(resp - 1).getOlimpiada().getTemporada(),
+                                                                        lstEventos.get(resp - 1).getOlimpiada().getCiudad()
+                                                                )
+                                                        ),
+                                                        Integer.parseInt(
+                                                                DaoDeporte.conseguirIdDeporte(
+                                                                        lstEventos.get(resp - 1).getDeporte().getNombreDeporte()
+                                                                )
+                                                        )
+                                                )
+                                        )
+                                );
+
+                                idEvento = Integer.parseInt(
+                                        DaoEvento.conseguirIdEvento(
+                                                evento.getNombreEvento(),
+                                                Integer.parseInt(
+                                                        DaoOlimpiada.conseguirIdOlimpiada(
+                                                                evento.getOlimpiada().getNombreOlimpiada(),
+                                                                evento.getOlimpiada().getAnio(),
+                                                                evento.getOlimpiada().getTemporada(),
+                                                                evento.getOlimpiada().getCiudad()
+                                                        )
+                                                ),
+                                                Integer.parseInt(
+                                                        DaoDeporte.conseguirIdDeporte(
+                                                                evento.getDeporte().getNombreDeporte()
+                                                        )
+                                                )
+                                        )
+                                );
 
-                            DaoParticipacion.eliminarParticipacion(idDeportista, idEvento);
+                                DaoParticipacion.eliminarParticipacion(idDeportista, idEvento);
+                                unidad.confirmar();
+                            }
                             System.out.println("\n==============================");
                             System.out.println("   Participación Eliminada");
                             System.out.println("==============================");
@@ -547,6 +568,69 @@ public class MenuOlimpiadas {
                         System.out.println("No hay ningún deportista que contenga esa cadena de caracteres en el nombre.");
                     }
                     break;
+                case 7:
+                    System.out.println("Dime la ruta del archivo csv");
+                    path = scanner.nextLine();
+                    System.out.println("Dime el tamaño de lote");
+                    int tamLote = scanner.nextInt();
+                    scanner.nextLine();
+                    DaoCrearTablaDocker.crearLaBBDDMasiva(path, tamLote);
+                    break;
+                case 8:
+                    System.out.println("Dime la ruta del archivo csv");
+                    path = scanner.nextLine();
+                    System.out.println("Dime el número de hilos parser y de hilos escritores");
+                    int hilosParser = scanner.nextInt();
+                    int hilosEscritura = scanner.nextInt();
+                    System.out.println("Dime el tamaño de lote");
+                    tamLote = scanner.nextInt();
+                    scanner.nextLine();
+                    DaoCrearTablaDocker.crearLaBBDDEnParalelo(path, hilosParser, hilosEscritura, tamLote);
+                    break;
+                case 9:
+                    System.out.println("Dime la ruta del archivo csv");
+                    path = scanner.nextLine();
+                    System.out.println("Dime cada cuántas filas se confirma la transacción");
+                    tamLote = scanner.nextInt();
+                    scanner.nextLine();
+                    DaoCrearTablaDocker.crearLaBBDDPorBloques(path, tamLote);
+                    break;
+                case 10:
+                    System.out.println("Dime la ruta del archivo csv");
+                    path = scanner.nextLine();
+                    DaoCrearTablaDocker.actualizarLaBBDD(path);
+                    break;
+                case 11:
+                    System.out.println("Dime la ruta del archivo csv");
+                    path = scanner.nextLine();
+                    cargaInicialJDBC(path);
+                    break;
+                case 12:
+                    System.out.println("Dime la ruta del directorio");
+                    path = scanner.nextLine();
+                    System.out.println("Dime cuántos archivos se cargan a la vez");
+                    int hilos = scanner.nextInt();
+                    scanner.nextLine();
+                    DaoCrearTablaDocker.crearLaBBDDDesdeDirectorio(path, hilos);
+                    break;
+
+                case 13:
+                    System.out.println(HibernateUtil.resumenPools());
+                    break;
+
+                case 14:
+                    System.out.println(HibernateUtil.resumenCaches());
+                    System.out.println(CacheIds.resumenTodas());
+                    System.out.println(CacheListas.resumenTodas());
+                    break;
+
+                case 15:
+                    System.out.println("Dime el nombre a buscar");
+                    String cadena = scanner.nextLine();
+                    System.out.println("Dime la ruta del archivo csv de salida");
+                    path = scanner.nextLine();
+                    exportarDeportistas(cadena, path);
+                    break;
 
                 case 0:
                     System.out.println("Saliendo...");
@@ -555,6 +639,11 @@ public class MenuOlimpiadas {
                     System.out.println("Opción no disponible.");
                     break;
             }
+            // Las cargas escriben por su cuenta: las búsquedas sin resultado y los listados pueden haber cambiado
+            if (opcion == 1 || opcion >= 7 && opcion <= 12) {
+                CacheIds.olvidarNegativos();
+                CacheListas.vaciarTodas();
+            }
         } while (opcion != 0);
 
         scanner.close();
@@ -627,55 +716,89 @@ public class MenuOlimpiadas {
         statement.executeUpdate(sqlCrearTablaParticipacion);
     }
     /**
-     * cargar datos del csv
+     * Carga el CSV directamente por JDBC, sin pasar por Hibernate. Todas las tablas se rellenan con
+     * sentencias INSERT de varias filas: primero las dimensiones nuevas de cada lote, cuyos IDs generados
+     * se leen por grupos y se usan en las participaciones. Se confirma una transacción por lote.
      * @param conexion
      * @param archivoCSV
      */
     public static void cargarDatosDesdeCSV(Connection conexion, File archivoCSV) {
-        String sqlInsertarDeportista = "INSERT INTO Deportista (nombre, sexo, peso, altura) VALUES (?, ?, ?, ?)";
-        String sqlInsertarEquipo = "INSERT INTO Equipo (nombre, iniciales) VALUES (?, ?)";
-        String sqlInsertarOlimpiada = "INSERT INTO Olimpiada (nombre, anio, temporada, ciudad) VALUES (?, ?, ?, ?)";
-        String sqlInsertarEvento = "INSERT INTO Evento (nombre, id_olimpiada, id_deporte) VALUES (?, ?, ?)";
-        String sqlInsertarParticipacion = "INSERT INTO Participacion (id_deportista, id_evento, id_equipo, edad, medalla) VALUES (?, ?, ?, ?, ?)";
-
-        try (BufferedReader br = new BufferedReader(new FileReader(archivoCSV))) {
-            String line;
-            br.readLine(); // Leer la línea de encabezado para obtener la estructura del archivo
-            PreparedStatement psDeportista = conexion.prepareStatement(sqlInsertarDeportista);
-            PreparedStatement psEquipo = conexion.prepareStatement(sqlInsertarEquipo);
-            PreparedStatement psOlimpiada = conexion.prepareStatement(sqlInsertarOlimpiada);
-            PreparedStatement psEvento = conexion.prepareStatement(sqlInsertarEvento);
-            PreparedStatement psParticipacion = conexion.prepareStatement(sqlInsertarParticipacion);
-
-            while ((line = br.readLine()) != null) {
-                String[] campos = line.split(",");
-
-                // Validar y procesar las columnas, insertar en la tabla correcta
-                if (campos.length > 0) {
-
-                    if (campos[5].equals("NA")) {
-                        campos[5] = "0";
-                    }
-                    if (campos[4].equals("NA")) {
-                        campos[4] = "0";
-                    }
-
-                    campos[5] = Math.round(Float.parseFloat(campos[5])) + "";
-                    psDeportista.setString(1, campos[1]); // Nombres
-                    psDeportista.setString(2, campos[2]); // Sexo
-                    psDeportista.setInt(3, Integer.parseInt(campos[5])); // Peso
-                    psDeportista.setInt(4, Integer.parseInt(campos[4])); // Altura
+        long inicio = System.nanoTime();
+        long filas = 0;
 
-                    // System.out.println(campos[2]);
-                    psDeportista.executeUpdate();
-                    conexion.commit();
+        try (LectorCsvMapeado lector = new LectorCsvMapeado(archivoCSV.toPath())) {
+            if (!lector.siguienteFila() || !FilaCsv.esCabecera(lector)) {
+                System.out.println("El formato del CSV no es correcto.");
+                return;
+            }
+            conexion.setAutoCommit(false);
+
+            // Las claves que ya existen se cargan una vez; las nuevas se añaden al insertarlas
+            DiccionarioDimensiones diccionario = new DiccionarioDimensiones();
+            diccionario.cargar(conexion);
+
+            List<FilaCsv> lote = new ArrayList<>(TAM_LOTE_JDBC);
+            while (lector.siguienteFila()) {
+                lote.add(FilaCsv.desdeLector(lector));
+                if (lote.size() == TAM_LOTE_JDBC) {
+                    cargarLote(conexion, diccionario, lote);
+                    filas += lote.size();
+                    lote.clear();
                 }
             }
+            cargarLote(conexion, diccionario, lote);
+            filas += lote.size();
 
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            System.out.printf("Carga por JDBC terminada: %d filas en %.1f s (%.0f filas/s)%n", filas, segundos, filas / segundos);
         } catch (IOException | SQLException e) {
             System.out.println(
                     "Error al procesar el archivo CSV o realizar operaciones en la base de datos: " + e.getMessage());
             e.printStackTrace();
+            try {
+                conexion.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Inserta un lote de filas en las cinco tablas y confirma la transacción
+     * @param conexion
+     * @param diccionario
+     * @param lote
+     * @throws SQLException
+     */
+    private static void cargarLote(Connection conexion, DiccionarioDimensiones diccionario, List<FilaCsv> lote) throws SQLException {
+        if (lote.isEmpty()) return;
+        try {
+            DiccionarioDimensiones.insertarParticipaciones(conexion, diccionario.resolverLote(conexion, lote));
+            conexion.commit();
+            diccionario.confirmarLote();
+        } catch (SQLException e) {
+            diccionario.deshacerLote();
+            throw e;
+        }
+    }
+
+    /**
+     * Crea las tablas y carga el CSV por JDBC usando la conexión de una sesión de Hibernate
+     * @param path
+     */
+    public static void cargaInicialJDBC(String path) {
+        File archivoCSV = new File(path);
+        if (!archivoCSV.isFile()) {
+            System.out.println("El archivo CSV no existe o no es válido.");
+            return;
+        }
+        try (Session session = HibernateUtil.openSession()) {
+            session.doWork(conexion -> {
+                try (Statement statement = conexion.createStatement()) {
+                    crearTablas(statement);
+                }
+                cargarDatosDesdeCSV(conexion, archivoCSV);
+            });
         }
     }
 
@@ -701,17 +824,78 @@ public class MenuOlimpiadas {
      * @return
      */
     public static ArrayList<ModeloParticipacion> listaParticipaciones(int idDeportista) {
-        ArrayList<ModeloParticipacion> listaParticipaciones = new ArrayList<>();
-
-        // Obtener lista de IDs de eventos en los que ha participado el deportista
-        List<String> idsEventos = DaoParticipacion.getIdEvento(idDeportista);
-        for (String idEvento : idsEventos) {
-            int eventoId = Integer.parseInt(idEvento);
-            ModeloParticipacion participacion = DaoParticipacion.crearModeloParticipacion(idDeportista, eventoId);
-            listaParticipaciones.add(participacion);
+        // Una sola consulta trae las participaciones con su evento, deporte, olimpiada y equipo
+        return new ArrayList<>(DaoParticipacion.historialDeportista(idDeportista));
+    }
+
+    /**
+     * Busca deportistas por nombre y deja elegir uno. Los resultados se muestran por páginas de
+     * {@link DaoDeportista#TAM_PAGINA}; con 0 se pasa a la siguiente.
+     *
+     * @param scanner El escáner de la entrada estándar.
+     * @param nombre La cadena a buscar en el nombre.
+     * @param titulo El título de la lista.
+     * @return El deportista elegido, o null si ninguno contiene la cadena.
+     */
+    private static ModeloDeportista elegirDeportista(Scanner scanner, String nombre, String titulo) {
+        int tamPagina = DaoDeportista.TAM_PAGINA;
+        // Se pide uno más de los que se muestran para saber si hay otra página
+        List<ModeloDeportista> pagina = DaoDeportista.findDeportistaName(nombre, 0, tamPagina + 1);
+        if (pagina.isEmpty()) {
+            return null;
         }
+        int resp;
+        while (true) {
+            boolean hayMas = pagina.size() > tamPagina;
+            int mostrados = Math.min(pagina.size(), tamPagina);
+            System.out.println("\n==============================");
+            System.out.println(titulo);
+            System.out.println("==============================");
+            for (int i = 0; i < mostrados; i++) {
+                System.out.println("   " + (i + 1) + ": " + pagina.get(i).getNombreDeportista());
+            }
+            if (hayMas) {
+                System.out.println("   0: Página siguiente");
+            }
+            System.out.print("Selecciona el número: ");
+            resp = scanner.nextInt();
+            scanner.nextLine();
+            if (resp == 0 && hayMas) {
+                int ultimo = pagina.get(mostrados - 1).getIdDeportista();
+                pagina = DaoDeportista.findDeportistaName(nombre, ultimo, tamPagina + 1);
+            } else if (resp >= 1 && resp <= mostrados) {
+                return pagina.get(resp - 1);
+            }
+        }
+    }
 
-        return listaParticipaciones;
+    /**
+     * Exporta a un CSV los deportistas cuyo nombre contiene la cadena, leyéndolos con un cursor para no
+     * tenerlos todos en memoria. Si algo falla a mitad, avisa de que el archivo está incompleto.
+     *
+     * @param cadena La cadena a buscar en el nombre.
+     * @param path La ruta del archivo CSV de salida.
+     */
+    public static void exportarDeportistas(String cadena, String path) {
+        long inicio = System.nanoTime();
+        try (BufferedWriter bw = Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8)) {
+            bw.write("\"ID\",\"Name\",\"Sex\",\"Height\",\"Weight\"");
+            bw.newLine();
+            long total = DaoDeportista.recorrerDeportistasPorNombre(cadena, deportista -> {
+                try {
+                    bw.write(deportista.getIdDeportista() + ",\"" + deportista.getNombreDeportista().replace("\"", "\"\"")
+                            + "\",\"" + deportista.getSexo() + "\"," + deportista.getAltura() + "," + deportista.getPeso());
+                    bw.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            System.out.println(total + " deportistas exportados a " + path + " en "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error al exportar los deportistas: el archivo " + path + " está incompleto.");
+            e.printStackTrace();
+        }
     }
 
 }
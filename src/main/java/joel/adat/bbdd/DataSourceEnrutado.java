@@ -0,0 +1,156 @@
+package joel.adat.bbdd;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * La clase {@code DataSourceEnrutado} reparte las conexiones entre la base de datos principal y sus
+ * réplicas de lectura.
+ *
+ * <p>Las unidades de trabajo de solo lectura marcan el hilo con {@link #marcarLectura(boolean)} antes de
+ * abrir su transacción; esas conexiones se sacan de las réplicas por turnos. Todo lo demás, incluido el
+ * arranque de Hibernate y las cargas, va a la principal. Si una réplica no responde se prueba la
+ * siguiente y, si fallan todas, la principal. Una réplica que falla se deja de usar durante
+ * {@code pausaTrasFalloMs}, para que las lecturas no esperen por ella una y otra vez.</p>
+ *
+ * <p>Para poder leer lo que se acaba de escribir, tras confirmar una escritura el hilo sigue leyendo de
+ * la principal durante {@code ventanaLeerEscriturasMs}, que cubre el retraso de replicación.</p>
+ */
+public class DataSourceEnrutado implements DataSource {
+    private static final ThreadLocal<Boolean> lectura = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Long> ultimaEscritura = new ThreadLocal<>();
+
+    private final DataSource principal;
+    private final List<DataSource> replicas;
+    private final long ventanaLeerEscriturasNanos;
+    private final long pausaTrasFalloNanos;
+    // Instante (System.nanoTime) hasta el que cada réplica no se usa por haber fallado; 0 si está activa
+    private final AtomicLongArray pausadaHasta;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final AtomicLong lecturasEnReplicas = new AtomicLong();
+    private final AtomicLong lecturasEnPrincipal = new AtomicLong();
+    private final AtomicLong fallosReplica = new AtomicLong();
+
+    /**
+     * @param principal La base de datos principal, que recibe todas las escrituras.
+     * @param replicas Las réplicas de lectura; puede estar vacía.
+     * @param ventanaLeerEscriturasMs Milisegundos que un hilo sigue leyendo de la principal tras
+     *                                escribir; 0 para no hacerlo.
+     * @param pausaTrasFalloMs Milisegundos que se deja de usar una réplica después de fallar.
+     */
+    public DataSourceEnrutado(DataSource principal, List<DataSource> replicas, long ventanaLeerEscriturasMs,
+                              long pausaTrasFalloMs) {
+        this.principal = principal;
+        this.replicas = List.copyOf(replicas);
+        this.ventanaLeerEscriturasNanos = ventanaLeerEscriturasMs * 1_000_000;
+        this.pausaTrasFalloNanos = pausaTrasFalloMs * 1_000_000;
+        this.pausadaHasta = new AtomicLongArray(replicas.size());
+    }
+
+    /**
+     * Indica si las próximas conexiones del hilo son para leer.
+     *
+     * @param soloLectura true si la unidad de trabajo del hilo es de solo lectura.
+     */
+    static void marcarLectura(boolean soloLectura) {
+        lectura.set(soloLectura);
+    }
+
+    /**
+     * Anota que el hilo acaba de confirmar una escritura en la principal.
+     */
+    public static void registrarEscritura() {
+        ultimaEscritura.set(System.nanoTime());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!lectura.get() || replicas.isEmpty() || leyendoPropiasEscrituras()) {
+            if (lectura.get()) lecturasEnPrincipal.incrementAndGet();
+            return principal.getConnection();
+        }
+        int inicio = Math.floorMod(siguiente.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int indice = (inicio + i) % replicas.size();
+            long pausa = pausadaHasta.get(indice);
+            if (pausa != 0 && System.nanoTime() - pausa < 0) continue;
+            try {
+                Connection conexion = replicas.get(indice).getConnection();
+                pausadaHasta.set(indice, 0);
+                lecturasEnReplicas.incrementAndGet();
+                return conexion;
+            } catch (SQLException e) {
+                fallosReplica.incrementAndGet();
+                pausadaHasta.set(indice, System.nanoTime() + pausaTrasFalloNanos);
+            }
+        }
+        lecturasEnPrincipal.incrementAndGet();
+        return principal.getConnection();
+    }
+
+    private boolean leyendoPropiasEscrituras() {
+        Long escritura = ultimaEscritura.get();
+        return escritura != null && System.nanoTime() - escritura < ventanaLeerEscriturasNanos;
+    }
+
+    public int getNumReplicas() {
+        return replicas.size();
+    }
+
+    /**
+     * @return Un resumen del reparto de lecturas, para mostrar por consola.
+     */
+    public String resumen() {
+        return String.format("Réplicas: %d | Lecturas en réplicas: %d, en la principal: %d | Fallos de réplica: %d",
+                replicas.size(), lecturasEnReplicas.get(), lecturasEnPrincipal.get(), fallosReplica.get());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Las credenciales se configuran en cada pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return principal.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        principal.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        principal.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return principal.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return principal.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        return principal.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || principal.isWrapperFor(iface);
+    }
+}
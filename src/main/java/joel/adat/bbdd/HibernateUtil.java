@@ -1,11 +1,29 @@
 package joel.adat.bbdd;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * La clase {@code HibernateUtil} gestiona la configuración y conexión a la base de datos
  * a través de Hibernate. Proporciona métodos para obtener el `SessionFactory` y abrir sesiones.
@@ -15,47 +33,324 @@ import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
  *
  * <p>Incluye métodos para abrir y cerrar sesiones y gestionar transacciones de forma segura.</p>
  *
+ * <p>Las conexiones las gestiona un pool HikariCP configurado con las propiedades {@code hibernate.hikari.*}
+ * del mismo archivo. Sus métricas se publican por JMX ({@code joel.adat:type=Pool}) y se pueden
+ * consultar con {@link #getMetricasPool()}.</p>
+ *
+ * <p>Si {@code hibernate.replicas.urls} tiene una lista de URLs separadas por comas, se crea además un
+ * pool por réplica y las unidades de trabajo de solo lectura se reparten entre ellas
+ * (ver {@link DataSourceEnrutado}).</p>
+ *
+ * <p>Encima de `hibernate.cfg.xml` se aplica un perfil, {@code hibernate-<perfil>.properties}, elegido con
+ * {@code -Dolimpiadas.perfil} o la variable {@code OLIMPIADAS_PERFIL} ({@code dev} por defecto). El de
+ * producción quita el eco de SQL y ajusta los lotes y el driver; si define
+ * {@code hibernate.consultasLentas.umbralMs}, las sentencias lentas se anotan con
+ * {@link RegistroConsultasLentas}. Las propiedades {@code -Dhibernate.*} se aplican al final y ganan
+ * a las del archivo y el perfil.</p>
+ *
+ * <p>Deporte, Olimpiada y Equipo se guardan en la caché de segundo nivel de Hibernate, en memoria y
+ * configurada en `ehcache.xml`. Sus aciertos y fallos se consultan con {@link #resumenCaches()}.</p>
+ *
+ * <p>El `SessionFactory` se construye en un hilo en segundo plano que lanza
+ * {@link #arrancarEnSegundoPlano()}, para que el menú se muestre sin esperar a Hibernate. La primera
+ * llamada que lo necesita solo espera si todavía no ha terminado; si nadie ha lanzado el arranque, lo
+ * lanza ella.</p>
+ *
  */
 public class HibernateUtil {
-    private static SessionFactory sessionFactory;
+    private static final String PREFIJO_POOL = "hibernate.hikari.";
+    private static final String URLS_REPLICAS = "hibernate.replicas.urls";
+    private static final String VENTANA_LEER_ESCRITURAS = "hibernate.replicas.leerEscriturasMs";
+    private static final String TIMEOUT_REPLICAS = "hibernate.replicas.connectionTimeoutMs";
+    private static final String PAUSA_REPLICAS = "hibernate.replicas.pausaTrasFalloMs";
+    private static final String UMBRAL_CONSULTAS_LENTAS = "hibernate.consultasLentas.umbralMs";
+    private static final String MUESTREO_CONSULTAS_LENTAS = "hibernate.consultasLentas.muestreo";
+    private static final String ARCHIVO_CONSULTAS_LENTAS = "hibernate.consultasLentas.archivo";
+
+    private static final MetricasPool metricasPool = new MetricasPool();
+    private static final List<MetricasPool> metricasReplicas = new CopyOnWriteArrayList<>();
+    private static final List<HikariDataSource> pools = new CopyOnWriteArrayList<>();
+    private static final CompletableFuture<SessionFactory> arranque = new CompletableFuture<>();
+    private static final AtomicBoolean arrancado = new AtomicBoolean();
+    private static volatile DataSourceEnrutado dataSource;
+    private static volatile RegistroConsultasLentas consultasLentas;
+    private static volatile String perfil;
+    private static volatile long msArranque;
+
+    /**
+     * Lanza la construcción del `SessionFactory` en un hilo en segundo plano. Conviene llamarlo al
+     * principio del programa, antes de mostrar nada al usuario. Solo la primera llamada hace algo, así
+     * que la configuración de Hibernate se carga una sola vez.
+     */
+    public static void arrancarEnSegundoPlano() {
+        if (!arrancado.compareAndSet(false, true)) return;
+        Thread hilo = new Thread(HibernateUtil::construir, "arranque-hibernate");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
 
     /**
-     * Configura y construye el `SessionFactory` de Hibernate.
-     * Este bloque estático garantiza que la configuración de Hibernate se cargue una vez
-     * y que el `SessionFactory` esté listo para ser utilizado.
+     * Configura y construye el `SessionFactory` de Hibernate y completa {@link #arranque}.
      */
-    static {
+    private static void construir() {
+        long inicio = System.nanoTime();
         try {
             // Cargar la configuración de Hibernate desde `hibernate.cfg.xml`
             Configuration configuration = new Configuration();
             configuration.configure("hibernate.cfg.xml");
+            aplicarPerfil(configuration);
+
+            // Crear los pools de conexiones y pasárselos a Hibernate como un único `DataSource`
+            Properties propiedades = configuration.getProperties();
+            dataSource = crearDataSource(propiedades);
+
+            // En lugar del eco de SQL, anotar solo las sentencias lentas si el perfil lo pide
+            DataSource dataSourceHibernate = dataSource;
+            String umbral = propiedades.getProperty(UMBRAL_CONSULTAS_LENTAS, "").trim();
+            if (!umbral.isEmpty()) {
+                consultasLentas = new RegistroConsultasLentas(Long.parseLong(umbral),
+                        Double.parseDouble(propiedades.getProperty(MUESTREO_CONSULTAS_LENTAS, "1").trim()),
+                        Path.of(propiedades.getProperty(ARCHIVO_CONSULTAS_LENTAS, "consultas-lentas.log").trim()));
+                dataSourceHibernate = consultasLentas.envolver(dataSource);
+            }
 
             // Construir el `SessionFactory` con un registro de servicios
-            ServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
-                    .applySettings(configuration.getProperties()).build();
-            sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+            // El registro parte del que ha leído `hibernate.cfg.xml`, que es el que tiene sus <mapping>
+            StandardServiceRegistryBuilder registro = configuration.getStandardServiceRegistryBuilder()
+                    .applySettings(propiedades)
+                    .applySetting(AvailableSettings.DATASOURCE, dataSourceHibernate);
+            // El usuario y la contraseña ya están en los pools. Si Hibernate los tiene, pide las conexiones
+            // con getConnection(usuario, contraseña), que los pools no admiten
+            registro.getSettings().remove(AvailableSettings.USER);
+            registro.getSettings().remove(AvailableSettings.PASS);
+            ServiceRegistry serviceRegistry = registro.build();
+            SessionFactory sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+            msArranque = (System.nanoTime() - inicio) / 1_000_000;
+            arranque.complete(sessionFactory);
         } catch (Throwable ex) {
             System.err.println("Error en la creación de `SessionFactory`: " + ex);
-            throw new ExceptionInInitializerError(ex);
+            cerrarPools();
+            arranque.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Añade a la configuración las propiedades del perfil activo y, después, las propiedades
+     * {@code hibernate.*} de la línea de comandos.
+     *
+     * @param configuration La configuración ya cargada desde `hibernate.cfg.xml`.
+     * @throws IllegalStateException Si no existe el archivo del perfil.
+     */
+    private static void aplicarPerfil(Configuration configuration) throws IOException {
+        String elegido = System.getProperty("olimpiadas.perfil", System.getenv("OLIMPIADAS_PERFIL"));
+        perfil = elegido == null || elegido.isBlank() ? "dev" : elegido.trim().toLowerCase();
+
+        String archivo = "hibernate-" + perfil + ".properties";
+        try (InputStream in = HibernateUtil.class.getClassLoader().getResourceAsStream(archivo)) {
+            if (in == null) {
+                throw new IllegalStateException("No existe el perfil '" + perfil + "' (" + archivo + ")");
+            }
+            Properties propiedades = new Properties();
+            propiedades.load(in);
+            configuration.addProperties(propiedades);
+        }
+
+        for (String propiedad : System.getProperties().stringPropertyNames()) {
+            if (propiedad.startsWith("hibernate.")) {
+                configuration.setProperty(propiedad, System.getProperty(propiedad));
+            }
+        }
+        System.out.println("Perfil de Hibernate: " + perfil);
+    }
+
+    /**
+     * Crea el pool de la base de datos principal y los de las réplicas, si las hay.
+     *
+     * @param propiedades Las propiedades de `hibernate.cfg.xml`.
+     * @return El `DataSource` que reparte las conexiones entre ellos.
+     */
+    private static DataSourceEnrutado crearDataSource(Properties propiedades) throws Exception {
+        HikariDataSource principal = crearPool(propiedades, "olimpiadas",
+                propiedades.getProperty(AvailableSettings.URL), metricasPool, false);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        String urls = propiedades.getProperty(URLS_REPLICAS, "").trim();
+        if (!urls.isEmpty()) {
+            String[] lista = urls.split(",");
+            for (int i = 0; i < lista.length; i++) {
+                MetricasPool metricas = new MetricasPool();
+                replicas.add(crearPool(propiedades, "olimpiadas-replica-" + (i + 1), lista[i], metricas, true));
+                metricasReplicas.add(metricas);
+            }
+        }
+        long ventana = Long.parseLong(propiedades.getProperty(VENTANA_LEER_ESCRITURAS, "2000").trim());
+        long pausa = Long.parseLong(propiedades.getProperty(PAUSA_REPLICAS, "30000").trim());
+        return new DataSourceEnrutado(principal, new ArrayList<>(replicas), ventana, pausa);
+    }
+
+    /**
+     * Crea un pool HikariCP con los datos de conexión de Hibernate y las propiedades
+     * {@code hibernate.hikari.*}, sin el prefijo (por ejemplo {@code hibernate.hikari.maximumPoolSize}).
+     *
+     * @param propiedades Las propiedades de `hibernate.cfg.xml`.
+     * @param nombre Nombre del pool, usado también en JMX.
+     * @param url URL JDBC de la base de datos.
+     * @param metricas Donde se registran las métricas del pool.
+     * @param replica Si el pool es de una réplica, que no debe impedir el arranque si no responde.
+     * @return El pool ya arrancado.
+     */
+    private static HikariDataSource crearPool(Properties propiedades, String nombre, String url, MetricasPool metricas,
+                                              boolean replica) throws Exception {
+        Properties propiedadesPool = new Properties();
+        for (String propiedad : propiedades.stringPropertyNames()) {
+            if (propiedad.startsWith(PREFIJO_POOL)) {
+                propiedadesPool.setProperty(propiedad.substring(PREFIJO_POOL.length()), propiedades.getProperty(propiedad).trim());
+            }
+        }
+        HikariConfig config = new HikariConfig(propiedadesPool);
+        config.setDriverClassName(propiedades.getProperty(AvailableSettings.DRIVER).trim());
+        config.setJdbcUrl(url.trim());
+        config.setUsername(propiedades.getProperty(AvailableSettings.USER).trim());
+        config.setPassword(propiedades.getProperty(AvailableSettings.PASS).trim());
+        config.setPoolName(nombre);
+        config.setRegisterMbeans(true);
+        config.setMetricsTrackerFactory(metricas);
+        if (replica) {
+            // Una réplica caída no para el arranque (el pool se crea sin conexiones) y una lectura solo la
+            // espera un momento antes de pasar a la siguiente
+            config.setInitializationFailTimeout(-1);
+            config.setConnectionTimeout(Long.parseLong(propiedades.getProperty(TIMEOUT_REPLICAS, "1000").trim()));
+        }
+
+        HikariDataSource ds = new HikariDataSource(config);
+        pools.add(ds);
+        metricas.setPool(ds.getHikariPoolMXBean());
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metricas,
+                new ObjectName("joel.adat:type=Pool,name=" + nombre));
+        return ds;
+    }
+
+    private static void cerrarPools() {
+        for (HikariDataSource pool : pools) {
+            pool.close();
         }
     }
 
     /**
-     * Obtiene el `SessionFactory` activo.
+     * Obtiene las métricas del pool de conexiones.
+     *
+     * @return Las métricas del pool.
+     */
+    public static MetricasPool getMetricasPool() {
+        return metricasPool;
+    }
+
+    /**
+     * Obtiene un resumen de todos los pools y del reparto de lecturas entre la principal y las réplicas.
+     *
+     * @return Una línea por pool y otra con el reparto.
+     */
+    public static String resumenPools() {
+        StringBuilder sb = new StringBuilder("[principal] ").append(metricasPool.resumen());
+        for (int i = 0; i < metricasReplicas.size(); i++) {
+            sb.append(System.lineSeparator()).append("[réplica ").append(i + 1).append("] ")
+                    .append(metricasReplicas.get(i).resumen());
+        }
+        if (dataSource != null) {
+            sb.append(System.lineSeparator()).append(dataSource.resumen());
+        }
+        if (consultasLentas != null) {
+            sb.append(System.lineSeparator()).append(consultasLentas.resumen());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene los aciertos, fallos y expulsiones de cada región de la caché de segundo nivel, a partir de
+     * las estadísticas JCache que Ehcache publica por JMX.
+     *
+     * @return Una línea por región.
+     */
+    public static String resumenCaches() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName nombre : servidor.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                long aciertos = (Long) servidor.getAttribute(nombre, "CacheHits");
+                long fallos = (Long) servidor.getAttribute(nombre, "CacheMisses");
+                long expulsiones = (Long) servidor.getAttribute(nombre, "CacheEvictions");
+                if (!sb.isEmpty()) {
+                    sb.append(System.lineSeparator());
+                }
+                sb.append(String.format("[%s] aciertos: %d, fallos: %d, tasa de aciertos: %.1f%%, expulsiones: %d",
+                        nombre.getKeyProperty("Cache"), aciertos, fallos,
+                        aciertos + fallos == 0 ? 0.0 : 100.0 * aciertos / (aciertos + fallos), expulsiones));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return sb.isEmpty() ? "La caché de segundo nivel todavía no se ha usado." : sb.toString();
+    }
+
+    /**
+     * Obtiene el `SessionFactory` activo, esperando a que termine de construirse si hace falta.
      *
      * @return El `SessionFactory` configurado.
+     * @throws IllegalStateException Si no se ha podido construir.
      */
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        if (!arranque.isDone()) {
+            arrancarEnSegundoPlano();
+            long inicio = System.nanoTime();
+            esperarArranque();
+            System.out.println("Esperando a que arranque Hibernate: " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        }
+        return esperarArranque();
+    }
+
+    private static SessionFactory esperarArranque() {
+        try {
+            return arranque.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("No se ha podido crear el `SessionFactory`", e.getCause());
+        }
+    }
+
+    /**
+     * Indica si el `SessionFactory` ya está listo.
+     *
+     * @return true si ya se ha construido correctamente.
+     */
+    public static boolean estaListo() {
+        return arranque.isDone() && !arranque.isCompletedExceptionally();
+    }
+
+    /**
+     * Obtiene el perfil de configuración activo.
+     *
+     * @return El nombre del perfil, o null si Hibernate todavía no ha leído la configuración.
+     */
+    public static String getPerfil() {
+        return perfil;
+    }
+
+    /**
+     * Obtiene el tiempo que ha tardado en construirse el `SessionFactory`.
+     *
+     * @return Los milisegundos del arranque, o 0 si todavía no ha terminado.
+     */
+    public static long getMsArranque() {
+        return msArranque;
     }
 
     /**
      * Cierra el `SessionFactory` y libera todos los recursos asociados.
      */
     public static void shutdown() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
+        if (estaListo()) {
+            arranque.join().close();
         }
+        cerrarPools();
     }
 
     /**
@@ -64,6 +359,6 @@ public class HibernateUtil {
      * @return Una nueva sesión de Hibernate.
      */
     public static Session openSession() {
-        return sessionFactory.openSession();
+        return getSessionFactory().openSession();
     }
 }
@@ -0,0 +1,73 @@
+package joel.adat.bbdd;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de tiempos con cubetas exponenciales, seguro entre hilos y sin bloqueos.
+ *
+ * <p>La cubeta {@code i} cuenta los valores entre 2^(i-1) y 2^i microsegundos, así que los percentiles
+ * tienen un error de como mucho el doble del valor real, suficiente para dimensionar el pool.</p>
+ */
+public class Histograma {
+
+    private static final int CUBETAS = 40;
+
+    private final LongAdder[] cubetas = new LongAdder[CUBETAS];
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumaMicros = new LongAdder();
+    private final AtomicLong maximoMicros = new AtomicLong();
+
+    public Histograma() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra un valor.
+     *
+     * @param nanos Tiempo en nanosegundos.
+     */
+    public void registrar(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int cubeta = Math.min(CUBETAS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        cubetas[cubeta].increment();
+        total.increment();
+        sumaMicros.add(micros);
+        maximoMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public double getMediaMs() {
+        long n = total.sum();
+        return n == 0 ? 0 : sumaMicros.sum() / 1000.0 / n;
+    }
+
+    public double getMaximoMs() {
+        return maximoMicros.get() / 1000.0;
+    }
+
+    /**
+     * Calcula un percentil como el límite superior de la cubeta en la que cae.
+     *
+     * @param percentil Valor entre 0 y 100.
+     * @return El percentil en milisegundos.
+     */
+    public double percentilMs(double percentil) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long objetivo = (long) Math.ceil(n * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cubetas[i].sum();
+            if (acumulado >= objetivo) {
+                return Math.min(1L << i, maximoMicros.get()) / 1000.0;
+            }
+        }
+        return getMaximoMs();
+    }
+}
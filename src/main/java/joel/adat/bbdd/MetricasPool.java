@@ -0,0 +1,134 @@
+package joel.adat.bbdd;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que recoge las métricas del pool de conexiones: conexiones activas, inactivas y hilos
+ * esperando, e histogramas del tiempo que se tarda en obtener una conexión y del tiempo que se usa.
+ *
+ * <p>Hikari llama a los métodos de {@link IMetricsTracker} en cada préstamo de conexión; los contadores
+ * de conexiones se leen del propio pool en el momento de la consulta.</p>
+ */
+public class MetricasPool implements MetricsTrackerFactory, IMetricsTracker, MetricasPoolMBean {
+
+    private final Histograma adquisicion = new Histograma();
+    private final Histograma uso = new Histograma();
+    private final LongAdder tiemposAgotados = new LongAdder();
+    private final LongAdder conexionesCreadas = new LongAdder();
+    private volatile HikariPoolMXBean pool;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    /**
+     * @param pool El pool del que se leen los contadores de conexiones.
+     */
+    void setPool(HikariPoolMXBean pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        conexionesCreadas.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        adquisicion.registrar(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        uso.registrar(elapsedBorrowedMillis * 1_000_000);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        tiemposAgotados.increment();
+    }
+
+    @Override
+    public int getConexionesActivas() {
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    @Override
+    public int getConexionesInactivas() {
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    @Override
+    public int getConexionesTotales() {
+        return pool == null ? 0 : pool.getTotalConnections();
+    }
+
+    @Override
+    public int getHilosEsperando() {
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    @Override
+    public long getAdquisiciones() {
+        return adquisicion.getTotal();
+    }
+
+    @Override
+    public double getAdquisicionMediaMs() {
+        return adquisicion.getMediaMs();
+    }
+
+    @Override
+    public double getAdquisicionP50Ms() {
+        return adquisicion.percentilMs(50);
+    }
+
+    @Override
+    public double getAdquisicionP95Ms() {
+        return adquisicion.percentilMs(95);
+    }
+
+    @Override
+    public double getAdquisicionP99Ms() {
+        return adquisicion.percentilMs(99);
+    }
+
+    @Override
+    public double getAdquisicionMaximaMs() {
+        return adquisicion.getMaximoMs();
+    }
+
+    @Override
+    public double getUsoP95Ms() {
+        return uso.percentilMs(95);
+    }
+
+    @Override
+    public long getTiemposAgotados() {
+        return tiemposAgotados.sum();
+    }
+
+    @Override
+    public long getConexionesCreadas() {
+        return conexionesCreadas.sum();
+    }
+
+    /**
+     * @return Un resumen de las métricas en una línea, para mostrar por consola.
+     */
+    public String resumen() {
+        return String.format("Pool: %d activas, %d inactivas, %d totales, %d hilos esperando | "
+                        + "Adquisición (%d): media %.2f ms, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, máx %.2f ms | "
+                        + "Uso p95 %.0f ms | %d tiempos agotados, %d conexiones creadas",
+                getConexionesActivas(), getConexionesInactivas(), getConexionesTotales(), getHilosEsperando(),
+                getAdquisiciones(), getAdquisicionMediaMs(), getAdquisicionP50Ms(), getAdquisicionP95Ms(),
+                getAdquisicionP99Ms(), getAdquisicionMaximaMs(), getUsoP95Ms(), getTiemposAgotados(),
+                getConexionesCreadas());
+    }
+}
@@ -0,0 +1,33 @@
+package joel.adat.bbdd;
+
+/**
+ * Métricas del pool de conexiones publicadas por JMX.
+ */
+public interface MetricasPoolMBean {
+
+    int getConexionesActivas();
+
+    int getConexionesInactivas();
+
+    int getConexionesTotales();
+
+    int getHilosEsperando();
+
+    long getAdquisiciones();
+
+    double getAdquisicionMediaMs();
+
+    double getAdquisicionP50Ms();
+
+    double getAdquisicionP95Ms();
+
+    double getAdquisicionP99Ms();
+
+    double getAdquisicionMaximaMs();
+
+    double getUsoP95Ms();
+
+    long getTiemposAgotados();
+
+    long getConexionesCreadas();
+}
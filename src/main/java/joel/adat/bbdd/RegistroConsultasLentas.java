@@ -0,0 +1,170 @@
+package joel.adat.bbdd;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La clase {@code RegistroConsultasLentas} sustituye al eco de SQL de Hibernate fuera de desarrollo: solo
+ * anota las sentencias que tardan más de un umbral.
+ *
+ * <p>Envuelve el `DataSource` para medir cada {@code execute*} de las sentencias JDBC. Todas las lentas
+ * se cuentan, pero solo una fracción ({@code muestreo}) se escribe en el archivo. La escritura la hace un
+ * hilo aparte: el hilo de la consulta solo deja la línea en una cola acotada y, si está llena, la
+ * descarta en lugar de esperar.</p>
+ */
+public class RegistroConsultasLentas {
+    private static final int CAPACIDAD_COLA = 1024;
+
+    private final long umbralNanos;
+    private final double muestreo;
+    private final Path archivo;
+    private final BlockingQueue<String> cola = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+    private final AtomicLong lentas = new AtomicLong();
+    private final AtomicLong escritas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong maximoNanos = new AtomicLong();
+
+    /**
+     * @param umbralMs Milisegundos a partir de los que una sentencia se considera lenta.
+     * @param muestreo Fracción de las sentencias lentas que se escriben, entre 0 y 1.
+     * @param archivo Archivo al que se añaden las sentencias.
+     */
+    public RegistroConsultasLentas(long umbralMs, double muestreo, Path archivo) {
+        this.umbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        this.muestreo = muestreo;
+        this.archivo = archivo;
+        Thread hilo = new Thread(this::escribir, "consultas-lentas");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Envuelve un `DataSource` para que las sentencias de sus conexiones pasen por el registro.
+     *
+     * @param dataSource El `DataSource` original.
+     * @return Un `DataSource` que delega en el original.
+     */
+    public DataSource envolver(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (objetivo, metodo, args) -> {
+            Object resultado = invocar(objetivo, metodo, args);
+            return resultado instanceof Connection conexion ? envolver(conexion) : resultado;
+        });
+    }
+
+    private Connection envolver(Connection conexion) {
+        return proxy(Connection.class, conexion, (objetivo, metodo, args) -> {
+            Object resultado = invocar(objetivo, metodo, args);
+            if (resultado instanceof Statement sentencia && metodo.getName().startsWith("prepare")) {
+                return envolver(sentencia, (String) args[0]);
+            }
+            if (resultado instanceof Statement sentencia) {
+                return envolver(sentencia, null);
+            }
+            return resultado;
+        });
+    }
+
+    private Statement envolver(Statement sentencia, String sql) {
+        Class<? extends Statement> tipo = sentencia instanceof CallableStatement ? CallableStatement.class
+                : sentencia instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return proxy(tipo, sentencia, (objetivo, metodo, args) -> {
+            if (!metodo.getName().startsWith("execute")) {
+                return invocar(objetivo, metodo, args);
+            }
+            long inicio = System.nanoTime();
+            try {
+                return invocar(objetivo, metodo, args);
+            } finally {
+                long nanos = System.nanoTime() - inicio;
+                if (nanos >= umbralNanos) {
+                    String texto = sql != null ? sql : args != null && args.length > 0 ? String.valueOf(args[0]) : "?";
+                    anotar(metodo.getName(), texto, nanos);
+                }
+            }
+        });
+    }
+
+    private void anotar(String metodo, String sql, long nanos) {
+        lentas.incrementAndGet();
+        maximoNanos.accumulateAndGet(nanos, Math::max);
+        if (muestreo < 1 && ThreadLocalRandom.current().nextDouble() >= muestreo) {
+            return;
+        }
+        String linea = LocalDateTime.now() + " " + nanos / 1_000_000 + " ms " + metodo + ": "
+                + sql.replaceAll("\\s+", " ").trim();
+        if (!cola.offer(linea)) {
+            descartadas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Bucle del hilo de escritura: vuelca la cola al archivo y lo sincroniza cuando se queda vacía.
+     */
+    private void escribir() {
+        try (BufferedWriter bw = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (true) {
+                String linea = cola.take();
+                do {
+                    bw.write(linea);
+                    bw.newLine();
+                    escritas.incrementAndGet();
+                } while ((linea = cola.poll()) != null);
+                bw.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("No se puede escribir el registro de consultas lentas en " + archivo + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtiene un resumen de las sentencias lentas vistas hasta ahora.
+     *
+     * @return Una línea con los contadores del registro.
+     */
+    public String resumen() {
+        return String.format("Consultas lentas (>= %d ms): %d, escritas en %s: %d, descartadas: %d, máximo: %d ms",
+                TimeUnit.NANOSECONDS.toMillis(umbralNanos), lentas.get(), archivo, escritas.get(),
+                descartadas.get(), TimeUnit.NANOSECONDS.toMillis(maximoNanos.get()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, Object objetivo, Manejador manejador) {
+        InvocationHandler handler = (p, metodo, args) -> manejador.invocar(objetivo, metodo, args);
+        return (T) Proxy.newProxyInstance(RegistroConsultasLentas.class.getClassLoader(), new Class<?>[]{tipo}, handler);
+    }
+
+    private static Object invocar(Object objetivo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(objetivo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Manejador {
+        Object invocar(Object objetivo, Method metodo, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,178 @@
+package joel.adat.bbdd;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * La clase {@code UnidadDeTrabajo} agrupa varias llamadas a los DAO en una única sesión y una única
+ * transacción, asociadas al hilo que la abre.
+ *
+ * <p>Cada método de los DAO abre su unidad con {@link #abrir()}. Si el hilo ya tiene una abierta, por
+ * ejemplo porque el menú ha abierto una para toda la acción del usuario, el DAO se une a ella: usa la
+ * misma `Session`, así que las entidades ya cargadas se reutilizan desde su caché de primer nivel, y no
+ * confirma nada por su cuenta. Solo la unidad más externa hace el commit o el rollback al cerrarse.</p>
+ *
+ * <p>Uso:</p>
+ * <pre>
+ * try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+ *     Session session = unidad.getSession();
+ *     ...
+ *     unidad.confirmar();
+ * }
+ * </pre>
+ *
+ * <p>Si una unidad se cierra sin llamar a {@link #confirmar()}, toda la transacción se deshace, aunque
+ * la unidad externa sí se confirme.</p>
+ *
+ * <p>Las consultas usan {@link #abrirLectura()}. Si la unidad externa es de solo lectura, su conexión se
+ * toma de una réplica (ver {@link DataSourceEnrutado}) y Hibernate no comprueba cambios en las entidades
+ * cargadas. Una escritura no puede unirse a una unidad de solo lectura.</p>
+ */
+public class UnidadDeTrabajo implements AutoCloseable {
+    private static final ThreadLocal<Contexto> actual = new ThreadLocal<>();
+
+    private final Contexto contexto;
+    private final boolean externa;
+    private boolean confirmada;
+    private boolean cerrada;
+
+    private UnidadDeTrabajo(Contexto contexto, boolean externa) {
+        this.contexto = contexto;
+        this.externa = externa;
+    }
+
+    /**
+     * Abre una unidad de trabajo de lectura y escritura o se une a la que ya tenga abierta el hilo.
+     *
+     * @return La unidad de trabajo; debe cerrarse siempre, normalmente con try-with-resources.
+     * @throws IllegalStateException Si el hilo tiene abierta una unidad de solo lectura.
+     */
+    public static UnidadDeTrabajo abrir() {
+        Contexto contexto = actual.get();
+        if (contexto != null && contexto.soloLectura) {
+            throw new IllegalStateException("No se puede escribir dentro de una unidad de trabajo de solo lectura");
+        }
+        return abrir(false);
+    }
+
+    /**
+     * Abre una unidad de trabajo de solo lectura o se une a la que ya tenga abierta el hilo, sea del
+     * tipo que sea.
+     *
+     * @return La unidad de trabajo; debe cerrarse siempre, normalmente con try-with-resources.
+     */
+    public static UnidadDeTrabajo abrirLectura() {
+        return abrir(true);
+    }
+
+    private static UnidadDeTrabajo abrir(boolean soloLectura) {
+        Contexto contexto = actual.get();
+        if (contexto != null) {
+            return new UnidadDeTrabajo(contexto, false);
+        }
+        contexto = new Contexto();
+        contexto.soloLectura = soloLectura;
+        actual.set(contexto);
+        return new UnidadDeTrabajo(contexto, true);
+    }
+
+    /**
+     * Indica si el hilo tiene una unidad de trabajo abierta.
+     *
+     * @return true si hay una unidad abierta.
+     */
+    public static boolean hayUnidadAbierta() {
+        return actual.get() != null;
+    }
+
+    /**
+     * Indica si el hilo tiene abierta una unidad de lectura y escritura. Lo que se lee dentro de ella
+     * puede incluir cambios que todavía no se han confirmado.
+     *
+     * @return true si hay una unidad de escritura abierta.
+     */
+    public static boolean hayUnidadDeEscritura() {
+        Contexto contexto = actual.get();
+        return contexto != null && !contexto.soloLectura;
+    }
+
+    /**
+     * Obtiene la sesión compartida por la unidad. La sesión y la transacción se abren la primera vez que
+     * se piden, así que una acción que no llega a consultar la base de datos no ocupa ninguna conexión.
+     *
+     * @return La sesión de la unidad.
+     */
+    public Session getSession() {
+        if (cerrada) {
+            throw new IllegalStateException("La unidad de trabajo ya está cerrada");
+        }
+        if (contexto.session == null) {
+            // La conexión se obtiene al empezar la transacción, así que el hilo se marca antes
+            DataSourceEnrutado.marcarLectura(contexto.soloLectura);
+            try {
+                contexto.session = HibernateUtil.openSession();
+                contexto.session.setDefaultReadOnly(contexto.soloLectura);
+                contexto.transaction = contexto.session.beginTransaction();
+            } finally {
+                DataSourceEnrutado.marcarLectura(false);
+            }
+        }
+        return contexto.session;
+    }
+
+    /**
+     * Marca esta parte de la unidad como correcta. La transacción solo se confirma si todas las partes
+     * lo han hecho.
+     */
+    public void confirmar() {
+        confirmada = true;
+    }
+
+    /**
+     * Cierra la unidad. Si es la externa, confirma o deshace la transacción y cierra la sesión.
+     */
+    @Override
+    public void close() {
+        if (cerrada) return;
+        cerrada = true;
+        if (!confirmada) {
+            contexto.soloDeshacer = true;
+        }
+        if (!externa) return;
+
+        actual.remove();
+        if (contexto.session == null) return;
+        try {
+            if (!contexto.soloDeshacer) {
+                contexto.transaction.commit();
+                if (!contexto.soloLectura) {
+                    DataSourceEnrutado.registrarEscritura();
+                }
+            } else {
+                if (contexto.transaction.isActive()) {
+                    contexto.transaction.rollback();
+                }
+                if (confirmada) {
+                    System.out.println("La operación se ha deshecho porque ha fallado uno de sus pasos.");
+                }
+            }
+        } catch (RuntimeException e) {
+            if (contexto.transaction.isActive()) {
+                contexto.transaction.rollback();
+            }
+            throw e;
+        } finally {
+            contexto.session.close();
+        }
+    }
+
+    /**
+     * Estado compartido por todas las partes de una unidad de trabajo.
+     */
+    private static class Contexto {
+        Session session;
+        Transaction transaction;
+        boolean soloLectura;
+        boolean soloDeshacer;
+    }
+}
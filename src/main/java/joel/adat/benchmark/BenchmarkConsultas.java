@@ -0,0 +1,98 @@
+package joel.adat.benchmark;
+
+import joel.adat.bbdd.HibernateUtil;
+import joel.adat.model.ModeloEvento;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+/**
+ * Programa que compara el coste de preparar las consultas de los DAO escribiendo el HQL en cada llamada
+ * con {@code createQuery} frente a usar las consultas con nombre registradas en las entidades.
+ *
+ * <p>Uso: {@code BenchmarkConsultas [iteraciones] [ejecutar]}. Por defecto solo se crean las consultas
+ * y se les asignan los parámetros, que es la parte que cambia entre las dos formas. Con {@code ejecutar}
+ * también se lanzan contra la base de datos configurada. Cada forma se repite varias veces y se muestra
+ * la mejor pasada.</p>
+ *
+ * <p>Para ver el coste de interpretar el HQL sin la caché de planes de Hibernate, arranca con
+ * {@code -Dhibernate.query.plan_cache_enabled=false}.</p>
+ */
+public class BenchmarkConsultas {
+
+	private static final int PASADAS = 5;
+
+	private static final String HQL_EVENTOS =
+			"FROM ModeloEvento e WHERE e.deporte.idDeporte = :idDeporte AND e.olimpiada.idOlimpiada = :idOlimpiada";
+	private static final String HQL_ID_EQUIPO =
+			"SELECT e.idEquipo FROM ModeloEquipo e WHERE e.nombreEquipo = :nombre AND e.iniciales = :iniciales";
+
+	public static void main(String[] args) {
+		int iteraciones = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		boolean ejecutar = args.length > 1 && args[1].equals("ejecutar");
+		if (ejecutar) {
+			iteraciones = Math.min(iteraciones, 2_000);
+		}
+
+		try (Session session = HibernateUtil.openSession()) {
+			long mejorHql = Long.MAX_VALUE;
+			long mejorNombre = Long.MAX_VALUE;
+			long control = 0;
+			for (int i = 0; i < PASADAS; i++) {
+				long inicio = System.nanoTime();
+				control += conHql(session, iteraciones, ejecutar);
+				mejorHql = Math.min(mejorHql, System.nanoTime() - inicio);
+
+				inicio = System.nanoTime();
+				control -= conNombre(session, iteraciones, ejecutar);
+				mejorNombre = Math.min(mejorNombre, System.nanoTime() - inicio);
+			}
+
+			System.out.printf("createQuery(hql):  %.2f µs/consulta%n", mejorHql / 1e3 / iteraciones);
+			System.out.printf("createNamedQuery:  %.2f µs/consulta%n", mejorNombre / 1e3 / iteraciones);
+			// Si las dos formas devuelven lo mismo el control vale 0
+			System.out.println("Control: " + control);
+		} finally {
+			HibernateUtil.shutdown();
+		}
+	}
+
+	private static long conHql(Session session, int iteraciones, boolean ejecutar) {
+		long suma = 0;
+		for (int i = 0; i < iteraciones; i++) {
+			Query<ModeloEvento> eventos = session.createQuery(HQL_EVENTOS, ModeloEvento.class);
+			eventos.setParameter("idDeporte", i % 50 + 1);
+			eventos.setParameter("idOlimpiada", i % 30 + 1);
+			Query<Integer> equipo = session.createQuery(HQL_ID_EQUIPO, Integer.class);
+			equipo.setParameter("nombre", "Spain");
+			equipo.setParameter("iniciales", "ESP");
+			suma += resultado(eventos, equipo, ejecutar);
+		}
+		return suma;
+	}
+
+	private static long conNombre(Session session, int iteraciones, boolean ejecutar) {
+		long suma = 0;
+		for (int i = 0; i < iteraciones; i++) {
+			Query<ModeloEvento> eventos = session.createNamedQuery("Evento.porDeporteYOlimpiada", ModeloEvento.class);
+			eventos.setParameter("idDeporte", i % 50 + 1);
+			eventos.setParameter("idOlimpiada", i % 30 + 1);
+			Query<Integer> equipo = session.createNamedQuery("Equipo.idPorNombreEIniciales", Integer.class);
+			equipo.setParameter("nombre", "Spain");
+			equipo.setParameter("iniciales", "ESP");
+			suma += resultado(eventos, equipo, ejecutar);
+		}
+		return suma;
+	}
+
+	/**
+	 * Ejecuta las consultas si se ha pedido; si no, devuelve algo que depende de ellas para que la JIT no
+	 * descarte el trabajo.
+	 */
+	private static long resultado(Query<ModeloEvento> eventos, Query<Integer> equipo, boolean ejecutar) {
+		if (!ejecutar) {
+			return eventos.getParameterMetadata().getParameterCount() + equipo.getParameterMetadata().getParameterCount();
+		}
+		Integer idEquipo = equipo.uniqueResult();
+		return eventos.getResultList().size() + (idEquipo != null ? idEquipo : 0);
+	}
+}
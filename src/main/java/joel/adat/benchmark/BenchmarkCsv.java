@@ -0,0 +1,107 @@
+package joel.adat.benchmark;
+
+import joel.adat.dao.FilaCsv;
+import joel.adat.dao.LectorCsvMapeado;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Programa que compara el rendimiento de la lectura con {@code BufferedReader} y {@code split(",")}
+ * frente al {@link LectorCsvMapeado} sobre un CSV sintético con el formato de athlete_events.
+ *
+ * <p>Uso: {@code BenchmarkCsv <ruta> [tamaño en GB]}. Si el archivo no existe se genera con el tamaño
+ * indicado (2 GB por defecto). Cada lector se ejecuta varias veces y se muestra la mejor pasada.</p>
+ */
+public class BenchmarkCsv {
+
+	private static final int PASADAS = 3;
+
+	public static void main(String[] args) throws IOException {
+		Path ruta = Path.of(args.length > 0 ? args[0] : "athlete_events_sintetico.csv");
+		double gigas = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		if (!Files.exists(ruta)) {
+			System.out.println("Generando " + gigas + " GB en " + ruta + "...");
+			generar(ruta, (long) (gigas * 1024 * 1024 * 1024));
+		}
+		double megas = Files.size(ruta) / (1024.0 * 1024.0);
+
+		long mejorSplit = Long.MAX_VALUE;
+		long mejorMapeado = Long.MAX_VALUE;
+		long control = 0;
+		for (int i = 0; i < PASADAS; i++) {
+			long inicio = System.nanoTime();
+			control += leerConSplit(ruta);
+			mejorSplit = Math.min(mejorSplit, System.nanoTime() - inicio);
+
+			inicio = System.nanoTime();
+			control -= leerMapeado(ruta);
+			mejorMapeado = Math.min(mejorMapeado, System.nanoTime() - inicio);
+		}
+
+		System.out.printf("BufferedReader + split: %.1f MB/s%n", megas / (mejorSplit / 1e9));
+		System.out.printf("LectorCsvMapeado:       %.1f MB/s%n", megas / (mejorMapeado / 1e9));
+		// Si los dos lectores leen las mismas edades el control vale 0
+		System.out.println("Control: " + control);
+	}
+
+	/**
+	 * Lee el archivo como lo hacía la carga original y suma las edades para que la JIT no descarte el trabajo.
+	 */
+	private static long leerConSplit(Path ruta) throws IOException {
+		long suma = 0;
+		try (BufferedReader br = new BufferedReader(new FileReader(ruta.toFile()))) {
+			String linea = br.readLine();
+			while ((linea = br.readLine()) != null) {
+				String[] campos = linea.split(",");
+				suma += campos[3].equals("NA") ? 0 : Integer.parseInt(campos[3]);
+			}
+		}
+		return suma;
+	}
+
+	private static long leerMapeado(Path ruta) throws IOException {
+		long suma = 0;
+		try (LectorCsvMapeado lector = new LectorCsvMapeado(ruta)) {
+			lector.siguienteFila();
+			while (lector.siguienteFila()) {
+				suma += lector.entero(3);
+			}
+		}
+		return suma;
+	}
+
+	/**
+	 * Genera un CSV sintético. Los nombres no llevan comas para que la lectura con split siga siendo
+	 * comparable, pero sí comillas en parte de las filas.
+	 */
+	private static void generar(Path ruta, long tamObjetivo) throws IOException {
+		Random random = new Random(42);
+		String[] deportes = {"Athletics", "Swimming", "Gymnastics", "Rowing", "Fencing", "Cycling"};
+		String[] ciudades = {"Barcelona", "London", "Athina", "Sydney", "Beijing", "Rio de Janeiro"};
+		long escritos = 0;
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(ruta.toFile()), 1 << 20)) {
+			bw.write(FilaCsv.CABECERA);
+			bw.newLine();
+			for (long id = 1; escritos < tamObjetivo; id++) {
+				int anio = 1896 + 4 * random.nextInt(31);
+				String deporte = deportes[random.nextInt(deportes.length)];
+				String nombre = (id % 4 == 0 ? "\"Athlete " + id + " Jr.\"" : "Athlete " + id);
+				String linea = id + "," + nombre + "," + (random.nextBoolean() ? "M" : "F") + ","
+						+ (random.nextInt(10) == 0 ? "NA" : String.valueOf(15 + random.nextInt(30))) + ","
+						+ (150 + random.nextInt(60)) + "," + (45 + random.nextInt(60)) + ".0,Spain,ESP,"
+						+ anio + " Summer," + anio + ",Summer," + ciudades[random.nextInt(ciudades.length)] + ","
+						+ deporte + "," + deporte + " Men's Event " + random.nextInt(20) + ",NA";
+				bw.write(linea);
+				bw.newLine();
+				escritos += linea.length() + 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package joel.adat.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Clase que guarda en disco una huella de cada participación cargada, indexada por el hash de su clave
+ * natural (deportista, olimpiada y evento).
+ *
+ * <p>Cada entrada ocupa 24 bytes: hash de la clave, hash del resto de datos de la fila y los IDs del
+ * deportista y del evento, que permiten borrar la participación sin volver a consultar sus claves.</p>
+ */
+public class AlmacenHuellas {
+
+	private final Path ruta;
+	private final Map<Long, Huella> huellas = new HashMap<>();
+
+	/**
+	 * @param ruta Archivo donde se guardan las huellas.
+	 */
+	public AlmacenHuellas(Path ruta) {
+		this.ruta = ruta;
+	}
+
+	/**
+	 * Lee las huellas del disco. Si el archivo no existe el almacén queda vacío y todas las filas
+	 * se tratarán como nuevas.
+	 *
+	 * @throws IOException Si no se puede leer el archivo.
+	 */
+	public void cargar() throws IOException {
+		huellas.clear();
+		if (!Files.exists(ruta)) return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ruta)))) {
+			int total = in.readInt();
+			for (int i = 0; i < total; i++) {
+				huellas.put(in.readLong(), new Huella(in.readLong(), in.readInt(), in.readInt()));
+			}
+		}
+	}
+
+	/**
+	 * Escribe las huellas en disco a través de un archivo temporal.
+	 *
+	 * @throws IOException Si no se puede escribir el archivo.
+	 */
+	public void guardar() throws IOException {
+		Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+			out.writeInt(huellas.size());
+			for (Map.Entry<Long, Huella> entrada : huellas.entrySet()) {
+				out.writeLong(entrada.getKey());
+				out.writeLong(entrada.getValue().datos);
+				out.writeInt(entrada.getValue().idDeportista);
+				out.writeInt(entrada.getValue().idEvento);
+			}
+		}
+		Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public Huella get(long clave) {
+		return huellas.get(clave);
+	}
+
+	public void put(long clave, Huella huella) {
+		huellas.put(clave, huella);
+	}
+
+	public Map<Long, Huella> getHuellas() {
+		return huellas;
+	}
+
+	/**
+	 * Calcula un hash FNV-1a de 64 bits de una cadena.
+	 *
+	 * @param texto La cadena.
+	 * @return El hash.
+	 */
+	public static long hash(String texto) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < texto.length(); i++) {
+			h ^= texto.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Huella de una participación ya cargada.
+	 */
+	public static class Huella {
+		final long datos;
+		final int idDeportista;
+		final int idEvento;
+
+		public Huella(long datos, int idDeportista, int idEvento) {
+			this.datos = datos;
+			this.idDeportista = idDeportista;
+			this.idEvento = idEvento;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.UnidadDeTrabajo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché acotada de clave natural a ID para los métodos {@code conseguirId*} de los DAO.
+ *
+ * <p>Un ID no cambia una vez asignado, así que los aciertos se guardan sin caducidad. Las búsquedas que no
+ * encuentran nada también se guardan, pero solo durante {@code olimpiadas.cacheIds.ttlNegativoMs}
+ * milisegundos (30 s por defecto), porque la fila puede crearse después por otro camino, como las cargas
+ * por JDBC. Los DAO que insertan llaman a {@link #invalidar(String)} con la clave de la fila nueva.</p>
+ *
+ * <p>Lo que se consulta dentro de una unidad de trabajo de escritura no se guarda: el ID puede ser de una
+ * fila que esa transacción aún no ha confirmado y que desaparecería si se deshace.</p>
+ *
+ * <p>Cuando se llena se expulsa la entrada usada hace más tiempo. Es segura entre hilos; la consulta a la
+ * base de datos se hace fuera del cerrojo.</p>
+ */
+public class CacheIds {
+
+	private static final long TTL_NEGATIVO_NANOS =
+			TimeUnit.MILLISECONDS.toNanos(Long.getLong("olimpiadas.cacheIds.ttlNegativoMs", 30_000));
+
+	public static final CacheIds DEPORTES = new CacheIds("deporte", 1_000);
+	public static final CacheIds EQUIPOS = new CacheIds("equipo", 5_000);
+	public static final CacheIds OLIMPIADAS = new CacheIds("olimpiada", 500);
+	public static final CacheIds EVENTOS = new CacheIds("evento", 10_000);
+	public static final CacheIds DEPORTISTAS = new CacheIds("deportista", 50_000);
+
+	private static final List<CacheIds> TODAS = List.of(DEPORTES, EQUIPOS, OLIMPIADAS, EVENTOS, DEPORTISTAS);
+
+	private final String nombre;
+	private final Map<String, Entrada> entradas;
+	private final LongAdder aciertos = new LongAdder();
+	private final LongAdder aciertosNegativos = new LongAdder();
+	private final LongAdder fallos = new LongAdder();
+	// Cambia con cada invalidación, para no guardar un negativo consultado antes de una inserción
+	private long version;
+
+	private CacheIds(String nombre, int maximo) {
+		this.nombre = nombre;
+		// Orden de acceso: el primero es el usado hace más tiempo
+		this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+				return size() > maximo;
+			}
+		};
+	}
+
+	/**
+	 * Construye la clave natural a partir de sus partes.
+	 *
+	 * @param partes Los campos que identifican la fila.
+	 * @return Las partes separadas por '|'.
+	 */
+	public static String clave(Object... partes) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < partes.length; i++) {
+			if (i > 0) sb.append('|');
+			sb.append(partes[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Devuelve el ID guardado para la clave o, si no está o ha caducado, lo consulta y lo guarda, salvo
+	 * que se consulte dentro de una unidad de trabajo de escritura.
+	 *
+	 * @param clave La clave natural.
+	 * @param consulta Consulta a la base de datos; devuelve null si la fila no existe.
+	 * @return El ID, o null si la fila no existe.
+	 */
+	public Integer buscar(String clave, Supplier<Integer> consulta) {
+		long versionConsulta;
+		synchronized (this) {
+			versionConsulta = version;
+			Entrada entrada = entradas.get(clave);
+			if (entrada != null) {
+				if (entrada.id != null) {
+					aciertos.increment();
+					return entrada.id;
+				}
+				if (System.nanoTime() < entrada.caduca) {
+					aciertosNegativos.increment();
+					return null;
+				}
+				entradas.remove(clave);
+			}
+		}
+		fallos.increment();
+		Integer id = consulta.get();
+		if (UnidadDeTrabajo.hayUnidadDeEscritura()) {
+			return id;
+		}
+		synchronized (this) {
+			if (id != null) {
+				entradas.put(clave, new Entrada(id, 0));
+			} else if (versionConsulta == version) {
+				entradas.put(clave, new Entrada(null, System.nanoTime() + TTL_NEGATIVO_NANOS));
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Guarda un ID ya conocido, por ejemplo durante el calentamiento de las cachés.
+	 *
+	 * @param clave La clave natural.
+	 * @param id El ID de la fila.
+	 */
+	public synchronized void registrar(String clave, int id) {
+		entradas.put(clave, new Entrada(id, 0));
+	}
+
+	/**
+	 * Olvida la clave, normalmente porque se acaba de insertar su fila.
+	 *
+	 * @param clave La clave natural.
+	 */
+	public synchronized void invalidar(String clave) {
+		version++;
+		entradas.remove(clave);
+	}
+
+	/**
+	 * Olvida todas las búsquedas sin resultado de todas las cachés, por ejemplo tras una carga por JDBC.
+	 */
+	public static void olvidarNegativos() {
+		for (CacheIds cache : TODAS) {
+			synchronized (cache) {
+				cache.entradas.values().removeIf(entrada -> entrada.id == null);
+			}
+		}
+	}
+
+	/**
+	 * Obtiene el tamaño y la tasa de aciertos de la caché.
+	 *
+	 * @return Una línea con los contadores.
+	 */
+	public String resumen() {
+		long positivos = aciertos.sum();
+		long negativos = aciertosNegativos.sum();
+		long consultas = fallos.sum();
+		long total = positivos + negativos + consultas;
+		int tam;
+		synchronized (this) {
+			tam = entradas.size();
+		}
+		return String.format("[IDs de %s] entradas: %d, aciertos: %d, aciertos negativos: %d, consultas: %d, tasa de aciertos: %.1f%%",
+				nombre, tam, positivos, negativos, consultas, total == 0 ? 0.0 : 100.0 * (positivos + negativos) / total);
+	}
+
+	/**
+	 * Obtiene el resumen de todas las cachés de IDs.
+	 *
+	 * @return Una línea por caché.
+	 */
+	public static String resumenTodas() {
+		StringBuilder sb = new StringBuilder();
+		for (CacheIds cache : TODAS) {
+			if (!sb.isEmpty()) sb.append(System.lineSeparator());
+			sb.append(cache.resumen());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * ID guardado; si es null, la búsqueda no encontró nada y la entrada caduca en {@code caduca}.
+	 */
+	private static class Entrada {
+		final Integer id;
+		final long caduca;
+
+		Entrada(Integer id, long caduca) {
+			this.id = id;
+			this.caduca = caduca;
+		}
+	}
+}
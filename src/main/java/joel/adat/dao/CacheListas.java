@@ -0,0 +1,171 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.UnidadDeTrabajo;
+import joel.adat.model.ModeloDeporte;
+import joel.adat.model.ModeloEvento;
+import joel.adat.model.ModeloOlimpiada;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché de los listados por los que navega el menú: olimpiadas de una temporada, deportes de una
+ * olimpiada y eventos de un deporte en una olimpiada.
+ *
+ * <p>Las entradas no caducan: se invalidan cuando un DAO escribe algo que cambia el listado. Añadir una
+ * olimpiada invalida su temporada y añadir un evento invalida los deportes de su olimpiada y los eventos
+ * de su deporte en esa olimpiada. Añadir un deporte no invalida nada, porque un deporte sin eventos no
+ * aparece en ningún listado. Tras las cargas masivas, que escriben sin pasar por los DAO, se vacían
+ * todas con {@link #vaciarTodas()}.</p>
+ *
+ * <p>Un listado consultado dentro de una unidad de trabajo de escritura no se guarda: puede incluir filas
+ * que esa transacción aún no ha confirmado y que desaparecerían si se deshace.</p>
+ *
+ * <p>Las entidades guardadas están separadas de su sesión y se comparten entre llamadas; cada llamada
+ * recibe su propia copia de la lista. Es segura entre hilos; la consulta a la base de datos se hace fuera
+ * del cerrojo.</p>
+ *
+ * @param <T> El tipo de las entidades del listado.
+ */
+public class CacheListas<T> {
+
+	public static final CacheListas<ModeloOlimpiada> OLIMPIADAS_POR_TEMPORADA =
+			new CacheListas<>("olimpiadas por temporada", 10);
+	public static final CacheListas<ModeloDeporte> DEPORTES_POR_OLIMPIADA =
+			new CacheListas<>("deportes por olimpiada", 200);
+	public static final CacheListas<ModeloEvento> EVENTOS_POR_DEPORTE_Y_OLIMPIADA =
+			new CacheListas<>("eventos por deporte y olimpiada", 2_000);
+
+	private static final List<CacheListas<?>> TODAS =
+			List.of(OLIMPIADAS_POR_TEMPORADA, DEPORTES_POR_OLIMPIADA, EVENTOS_POR_DEPORTE_Y_OLIMPIADA);
+
+	private final String nombre;
+	private final Map<String, List<T>> entradas;
+	private final LongAdder aciertos = new LongAdder();
+	private final LongAdder fallos = new LongAdder();
+	private final LongAdder invalidaciones = new LongAdder();
+	// Cambia con cada invalidación, para no guardar un listado consultado antes de una escritura
+	private long version;
+
+	private CacheListas(String nombre, int maximo) {
+		this.nombre = nombre;
+		// Orden de acceso: el primero es el usado hace más tiempo
+		this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest) {
+				return size() > maximo;
+			}
+		};
+	}
+
+	/**
+	 * Devuelve el listado guardado para los parámetros o, si no está, lo consulta y lo guarda, salvo
+	 * que se consulte dentro de una unidad de trabajo de escritura.
+	 *
+	 * @param clave Los parámetros del listado, construidos con {@link CacheIds#clave(Object...)}.
+	 * @param consulta Consulta a la base de datos.
+	 * @return Una copia del listado.
+	 */
+	public ArrayList<T> buscar(String clave, Supplier<List<T>> consulta) {
+		long versionConsulta;
+		synchronized (this) {
+			List<T> lista = entradas.get(clave);
+			if (lista != null) {
+				aciertos.increment();
+				return new ArrayList<>(lista);
+			}
+			versionConsulta = version;
+		}
+		fallos.increment();
+		List<T> lista = List.copyOf(consulta.get());
+		if (UnidadDeTrabajo.hayUnidadDeEscritura()) {
+			return new ArrayList<>(lista);
+		}
+		synchronized (this) {
+			if (versionConsulta == version) {
+				entradas.put(clave, lista);
+			}
+		}
+		return new ArrayList<>(lista);
+	}
+
+	/**
+	 * Obtiene la versión actual de la caché, que cambia con cada invalidación.
+	 *
+	 * @return La versión.
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Guarda varios listados ya conocidos, por ejemplo durante el calentamiento de las cachés. Si desde
+	 * que se leyeron ha habido alguna invalidación no se guarda ninguno, porque podrían estar desfasados.
+	 *
+	 * @param listas Los listados por clave.
+	 * @param versionLeida La versión de la caché antes de leer los listados, de {@link #getVersion()}.
+	 */
+	public synchronized void registrar(Map<String, List<T>> listas, long versionLeida) {
+		if (versionLeida != version) return;
+		for (Map.Entry<String, List<T>> lista : listas.entrySet()) {
+			entradas.put(lista.getKey(), List.copyOf(lista.getValue()));
+		}
+	}
+
+	/**
+	 * Olvida el listado de unos parámetros porque sus datos han cambiado.
+	 *
+	 * @param clave Los parámetros del listado.
+	 */
+	public synchronized void invalidar(String clave) {
+		version++;
+		invalidaciones.increment();
+		entradas.remove(clave);
+	}
+
+	/**
+	 * Olvida todos los listados de todas las cachés.
+	 */
+	public static void vaciarTodas() {
+		for (CacheListas<?> cache : TODAS) {
+			synchronized (cache) {
+				cache.version++;
+				cache.entradas.clear();
+			}
+		}
+	}
+
+	/**
+	 * Obtiene el tamaño y la tasa de aciertos de la caché.
+	 *
+	 * @return Una línea con los contadores.
+	 */
+	public String resumen() {
+		long positivos = aciertos.sum();
+		long consultas = fallos.sum();
+		int tam;
+		synchronized (this) {
+			tam = entradas.size();
+		}
+		return String.format("[Listado de %s] entradas: %d, aciertos: %d, consultas: %d, invalidaciones: %d, tasa de aciertos: %.1f%%",
+				nombre, tam, positivos, consultas, invalidaciones.sum(), positivos + consultas == 0 ? 0.0 : 100.0 * positivos / (positivos + consultas));
+	}
+
+	/**
+	 * Obtiene el resumen de todas las cachés de listados.
+	 *
+	 * @return Una línea por caché.
+	 */
+	public static String resumenTodas() {
+		StringBuilder sb = new StringBuilder();
+		for (CacheListas<?> cache : TODAS) {
+			if (!sb.isEmpty()) sb.append(System.lineSeparator());
+			sb.append(cache.resumen());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,321 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.UnidadDeTrabajo;
+import joel.adat.model.ModeloDeporte;
+import joel.adat.model.ModeloEquipo;
+import joel.adat.model.ModeloEvento;
+import joel.adat.model.ModeloOlimpiada;
+import org.hibernate.Session;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Clase que llena las cachés de los DAO al arrancar, para que las primeras acciones del menú no tengan que
+ * ir a la base de datos.
+ *
+ * <p>Se cargan los deportes, olimpiadas, equipos y eventos y, a partir de ellos, las cachés de IDs
+ * ({@link CacheIds}) y los listados de navegación ({@link CacheListas}). Los deportistas no se
+ * precargan porque son demasiados para su caché.</p>
+ *
+ * <p>Lo cargado se guarda en una instantánea en disco. En el siguiente arranque, si la instantánea
+ * corresponde a la misma versión de la base de datos, se lee proyectándola en memoria en lugar de hacer
+ * las consultas. La versión tiene dos huellas: una de las columnas del esquema y otra de los datos, con
+ * el número de filas, el ID máximo y el {@code CHECKSUM TABLE} de cada tabla de referencia. La suma de
+ * comprobación detecta también las filas modificadas, que no cambian ni el número de filas ni el ID
+ * máximo.</p>
+ *
+ * <p>Los listados se guardan en orden de ID, el mismo que usan las consultas de los DAO.</p>
+ *
+ * <p>Formato de la instantánea: magia, formato, huella del esquema, huella de los datos y, para cada
+ * tabla, el número de filas seguido de las filas. Las cadenas se guardan con su longitud en un
+ * {@code short} y sus bytes en UTF-8.</p>
+ */
+public class CalentamientoCaches {
+
+	private static final int MAGIA = 0x4F4C4943; // "OLIC"
+	private static final int FORMATO = 1;
+
+	private static final String SQL_ESQUEMA = "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE FROM information_schema.COLUMNS "
+			+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('Deporte', 'Olimpiada', 'Equipo', 'Evento') "
+			+ "ORDER BY TABLE_NAME, ORDINAL_POSITION";
+	private static final String SQL_DATOS = "SELECT "
+			+ "(SELECT COUNT(*) FROM Deporte), (SELECT MAX(id_deporte) FROM Deporte), "
+			+ "(SELECT COUNT(*) FROM Olimpiada), (SELECT MAX(id_olimpiada) FROM Olimpiada), "
+			+ "(SELECT COUNT(*) FROM Equipo), (SELECT MAX(id_equipo) FROM Equipo), "
+			+ "(SELECT COUNT(*) FROM Evento), (SELECT MAX(id_evento) FROM Evento)";
+	private static final String SQL_SUMAS = "CHECKSUM TABLE Deporte, Olimpiada, Equipo, Evento";
+
+	/**
+	 * Lanza el calentamiento en un hilo en segundo plano con la instantánea indicada en
+	 * {@code -Dolimpiadas.instantanea} ({@code caches_referencia.bin} por defecto). No hace nada si se
+	 * arranca con {@code -Dolimpiadas.calentarCaches=false}.
+	 */
+	public static void calentarEnSegundoPlano() {
+		if (!Boolean.parseBoolean(System.getProperty("olimpiadas.calentarCaches", "true"))) return;
+		Path instantanea = Path.of(System.getProperty("olimpiadas.instantanea", "caches_referencia.bin"));
+		Thread hilo = new Thread(() -> {
+			try {
+				calentar(instantanea);
+			} catch (Exception e) {
+				System.out.println("No se han podido precargar las cachés: " + e.getMessage());
+			}
+		}, "calentamiento-caches");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+
+	/**
+	 * Llena las cachés desde la instantánea si es válida o, si no, desde la base de datos, y en ese caso
+	 * guarda una instantánea nueva.
+	 *
+	 * @param instantanea Archivo de la instantánea.
+	 * @throws IOException Si no se puede escribir la instantánea.
+	 */
+	public static void calentar(Path instantanea) throws IOException {
+		long inicio = System.nanoTime();
+		// Si algún listado se invalida mientras se lee, los leídos pueden estar desfasados y no se guardan
+		long[] versionesListas = {CacheListas.OLIMPIADAS_POR_TEMPORADA.getVersion(),
+				CacheListas.DEPORTES_POR_OLIMPIADA.getVersion(), CacheListas.EVENTOS_POR_DEPORTE_Y_OLIMPIADA.getVersion()};
+		long[] version = consultarVersion();
+
+		Referencias referencias = leerInstantanea(instantanea, version);
+		boolean desdeInstantanea = referencias != null;
+		if (!desdeInstantanea) {
+			referencias = consultarReferencias();
+			guardarInstantanea(instantanea, version, referencias);
+		}
+
+		registrar(referencias, versionesListas);
+		System.out.printf("Cachés precargadas %s en %d ms: %d deportes, %d olimpiadas, %d equipos, %d eventos%n",
+				desdeInstantanea ? "desde " + instantanea : "desde la base de datos",
+				(System.nanoTime() - inicio) / 1_000_000, referencias.deportes.size(), referencias.olimpiadas.size(),
+				referencias.equipos.size(), referencias.eventos.size());
+	}
+
+	/**
+	 * Calcula la versión de la base de datos.
+	 *
+	 * @return La huella del esquema y la huella de los datos de las tablas de referencia.
+	 */
+	private static long[] consultarVersion() {
+		long[] version = new long[2];
+		try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+			unidad.getSession().doWork(conexion -> {
+				try (Statement st = conexion.createStatement()) {
+					StringBuilder esquema = new StringBuilder();
+					try (ResultSet rs = st.executeQuery(SQL_ESQUEMA)) {
+						while (rs.next()) {
+							esquema.append(rs.getString(1)).append('.').append(rs.getString(2)).append(':')
+									.append(rs.getString(3)).append(';');
+						}
+					}
+					StringBuilder datos = new StringBuilder();
+					try (ResultSet rs = st.executeQuery(SQL_DATOS)) {
+						rs.next();
+						for (int i = 1; i <= 8; i++) {
+							datos.append(rs.getLong(i)).append(';');
+						}
+					}
+					// Una fila por tabla, en el orden de la sentencia
+					try (ResultSet rs = st.executeQuery(SQL_SUMAS)) {
+						while (rs.next()) {
+							datos.append(rs.getString(1)).append(':').append(rs.getLong(2)).append(';');
+						}
+					}
+					version[0] = AlmacenHuellas.hash(esquema.toString());
+					version[1] = AlmacenHuellas.hash(datos.toString());
+				}
+			});
+			unidad.confirmar();
+		}
+		return version;
+	}
+
+	private static Referencias consultarReferencias() {
+		try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+			Session session = unidad.getSession();
+			Referencias referencias = new Referencias();
+			// Deportes y olimpiadas primero: al cargar los eventos ya están en la sesión y sus asociaciones
+			// perezosas apuntan a esas mismas instancias, sin proxies ni consultas de más
+			referencias.deportes = session.createNamedQuery("Deporte.todos", ModeloDeporte.class).getResultList();
+			referencias.olimpiadas = session.createNamedQuery("Olimpiada.todas", ModeloOlimpiada.class).getResultList();
+			referencias.equipos = session.createNamedQuery("Equipo.todos", ModeloEquipo.class).getResultList();
+			referencias.eventos = session.createNamedQuery("Evento.todos", ModeloEvento.class)
+					.applyFetchGraph(session.getEntityGraph(DaoEvento.GRAFO_EVENTO))
+					.getResultList();
+			unidad.confirmar();
+			return referencias;
+		}
+	}
+
+	/**
+	 * Llena las cachés de IDs y de listados con las referencias.
+	 *
+	 * @param versionesListas Las versiones de las cachés de listados antes de empezar a leer.
+	 */
+	private static void registrar(Referencias referencias, long[] versionesListas) {
+		for (ModeloDeporte deporte : referencias.deportes) {
+			CacheIds.DEPORTES.registrar(deporte.getNombreDeporte(), deporte.getIdDeporte());
+		}
+		for (ModeloEquipo equipo : referencias.equipos) {
+			CacheIds.EQUIPOS.registrar(CacheIds.clave(equipo.getNombreEquipo(), equipo.getIniciales()), equipo.getIdEquipo());
+		}
+
+		Map<String, List<ModeloOlimpiada>> olimpiadasPorTemporada = new HashMap<>();
+		for (ModeloOlimpiada olimpiada : referencias.olimpiadas) {
+			CacheIds.OLIMPIADAS.registrar(CacheIds.clave(olimpiada.getNombreOlimpiada(), olimpiada.getAnio(),
+					olimpiada.getTemporada(), olimpiada.getCiudad()), olimpiada.getIdOlimpiada());
+			olimpiadasPorTemporada.computeIfAbsent(olimpiada.getTemporada(), t -> new ArrayList<>()).add(olimpiada);
+		}
+
+		Map<String, TreeMap<Integer, ModeloDeporte>> deportesPorOlimpiada = new HashMap<>();
+		Map<String, List<ModeloEvento>> eventosPorDeporteYOlimpiada = new LinkedHashMap<>();
+		for (ModeloEvento evento : referencias.eventos) {
+			int idDeporte = evento.getDeporte().getIdDeporte();
+			int idOlimpiada = evento.getOlimpiada().getIdOlimpiada();
+			CacheIds.EVENTOS.registrar(CacheIds.clave(evento.getNombreEvento(), idOlimpiada, idDeporte), evento.getIdEvento());
+			deportesPorOlimpiada.computeIfAbsent(String.valueOf(idOlimpiada), o -> new TreeMap<>())
+					.put(idDeporte, evento.getDeporte());
+			eventosPorDeporteYOlimpiada.computeIfAbsent(CacheIds.clave(idDeporte, idOlimpiada), c -> new ArrayList<>())
+					.add(evento);
+		}
+
+		Map<String, List<ModeloDeporte>> deportes = new HashMap<>();
+		deportesPorOlimpiada.forEach((idOlimpiada, porId) -> deportes.put(idOlimpiada, new ArrayList<>(porId.values())));
+		CacheListas.OLIMPIADAS_POR_TEMPORADA.registrar(olimpiadasPorTemporada, versionesListas[0]);
+		CacheListas.DEPORTES_POR_OLIMPIADA.registrar(deportes, versionesListas[1]);
+		CacheListas.EVENTOS_POR_DEPORTE_Y_OLIMPIADA.registrar(eventosPorDeporteYOlimpiada, versionesListas[2]);
+	}
+
+	/**
+	 * Lee la instantánea proyectándola en memoria.
+	 *
+	 * @param version La versión actual de la base de datos.
+	 * @return Las referencias guardadas, o null si no existe, está dañada o es de otra versión.
+	 */
+	private static Referencias leerInstantanea(Path ruta, long[] version) throws IOException {
+		if (!Files.isRegularFile(ruta)) return null;
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			if (buffer.getInt() != MAGIA || buffer.getInt() != FORMATO
+					|| buffer.getLong() != version[0] || buffer.getLong() != version[1]) {
+				return null;
+			}
+
+			Referencias referencias = new Referencias();
+			Map<Integer, ModeloDeporte> deportes = new HashMap<>();
+			for (int i = buffer.getInt(); i > 0; i--) {
+				ModeloDeporte deporte = new ModeloDeporte(leerCadena(buffer));
+				deporte.setIdDeporte(buffer.getInt());
+				referencias.deportes.add(deporte);
+				deportes.put(deporte.getIdDeporte(), deporte);
+			}
+			Map<Integer, ModeloOlimpiada> olimpiadas = new HashMap<>();
+			for (int i = buffer.getInt(); i > 0; i--) {
+				ModeloOlimpiada olimpiada = new ModeloOlimpiada(leerCadena(buffer), buffer.getInt(),
+						leerCadena(buffer), leerCadena(buffer));
+				olimpiada.setIdOlimpiada(buffer.getInt());
+				referencias.olimpiadas.add(olimpiada);
+				olimpiadas.put(olimpiada.getIdOlimpiada(), olimpiada);
+			}
+			for (int i = buffer.getInt(); i > 0; i--) {
+				ModeloEquipo equipo = new ModeloEquipo(leerCadena(buffer), leerCadena(buffer));
+				equipo.setIdEquipo(buffer.getInt());
+				referencias.equipos.add(equipo);
+			}
+			for (int i = buffer.getInt(); i > 0; i--) {
+				String nombre = leerCadena(buffer);
+				ModeloEvento evento = new ModeloEvento(nombre, deportes.get(buffer.getInt()), olimpiadas.get(buffer.getInt()));
+				evento.setIdEvento(buffer.getInt());
+				if (evento.getDeporte() == null || evento.getOlimpiada() == null) return null;
+				referencias.eventos.add(evento);
+			}
+			return referencias;
+		} catch (BufferUnderflowException e) {
+			System.out.println("La instantánea de las cachés está incompleta; se vuelve a crear.");
+			return null;
+		}
+	}
+
+	/**
+	 * Escribe la instantánea a través de un archivo temporal.
+	 */
+	private static void guardarInstantanea(Path ruta, long[] version, Referencias referencias) throws IOException {
+		Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+			out.writeInt(MAGIA);
+			out.writeInt(FORMATO);
+			out.writeLong(version[0]);
+			out.writeLong(version[1]);
+
+			out.writeInt(referencias.deportes.size());
+			for (ModeloDeporte deporte : referencias.deportes) {
+				escribirCadena(out, deporte.getNombreDeporte());
+				out.writeInt(deporte.getIdDeporte());
+			}
+			out.writeInt(referencias.olimpiadas.size());
+			for (ModeloOlimpiada olimpiada : referencias.olimpiadas) {
+				escribirCadena(out, olimpiada.getNombreOlimpiada());
+				out.writeInt(olimpiada.getAnio());
+				escribirCadena(out, olimpiada.getTemporada());
+				escribirCadena(out, olimpiada.getCiudad());
+				out.writeInt(olimpiada.getIdOlimpiada());
+			}
+			out.writeInt(referencias.equipos.size());
+			for (ModeloEquipo equipo : referencias.equipos) {
+				escribirCadena(out, equipo.getNombreEquipo());
+				escribirCadena(out, equipo.getIniciales());
+				out.writeInt(equipo.getIdEquipo());
+			}
+			out.writeInt(referencias.eventos.size());
+			for (ModeloEvento evento : referencias.eventos) {
+				escribirCadena(out, evento.getNombreEvento());
+				out.writeInt(evento.getDeporte().getIdDeporte());
+				out.writeInt(evento.getOlimpiada().getIdOlimpiada());
+				out.writeInt(evento.getIdEvento());
+			}
+		}
+		Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void escribirCadena(DataOutputStream out, String cadena) throws IOException {
+		byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String leerCadena(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tablas de referencia leídas de la base de datos o de la instantánea.
+	 */
+	private static class Referencias {
+		List<ModeloDeporte> deportes = new ArrayList<>();
+		List<ModeloOlimpiada> olimpiadas = new ArrayList<>();
+		List<ModeloEquipo> equipos = new ArrayList<>();
+		List<ModeloEvento> eventos = new ArrayList<>();
+	}
+}
@@ -0,0 +1,116 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.HibernateUtil;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase que carga en paralelo un directorio con un CSV por cada olimpiada. Un grupo acotado de hilos
+ * procesa un archivo cada uno, con su propia sesión, y todos comparten las dimensiones a través de un
+ * {@link RegistroConcurrente}.
+ */
+public class CargaDirectorio {
+
+	private static final int TAM_LOTE = 2000;
+
+	private final int hilos;
+	private final AtomicLong filas = new AtomicLong();
+
+	/**
+	 * @param hilos Número máximo de archivos que se cargan a la vez; no debería superar el número de
+	 *              conexiones disponibles.
+	 */
+	public CargaDirectorio(int hilos) {
+		this.hilos = hilos;
+	}
+
+	/**
+	 * Carga todos los archivos {@code .csv}, {@code .jsonl} y sus versiones {@code .gz} del directorio.
+	 *
+	 * @param directorio El directorio.
+	 */
+	public void cargar(Path directorio) {
+		long inicio = System.nanoTime();
+		List<Path> archivos = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directorio, "*.{csv,jsonl,csv.gz,jsonl.gz}")) {
+			stream.forEach(archivos::add);
+		} catch (IOException e) {
+			System.out.println("No se puede leer el directorio " + directorio);
+			e.printStackTrace();
+			return;
+		}
+
+		DiccionarioDimensiones inicial = new DiccionarioDimensiones();
+		try (Session session = HibernateUtil.openSession()) {
+			session.doWork(inicial::cargar);
+		}
+		RegistroConcurrente registro = new RegistroConcurrente(inicial);
+
+		ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (Path archivo : archivos) {
+			tareas.add(ejecutor.submit(() -> cargarArchivo(archivo, registro)));
+		}
+		ejecutor.shutdown();
+
+		int fallidos = 0;
+		for (int i = 0; i < tareas.size(); i++) {
+			try {
+				tareas.get(i).get();
+			} catch (ExecutionException e) {
+				fallidos++;
+				System.out.println("Error al cargar " + archivos.get(i) + ": " + e.getCause().getMessage());
+				e.getCause().printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				ejecutor.shutdownNow();
+				return;
+			}
+		}
+
+		double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+		System.out.printf("Carga del directorio terminada: %d archivos (%d con errores), %d filas en %.1f s (%.0f filas/s)%n",
+				archivos.size(), fallidos, filas.get(), segundos, filas.get() / segundos);
+	}
+
+	private void cargarArchivo(Path archivo, RegistroConcurrente registro) {
+		try (Session session = HibernateUtil.openSession();
+			 FuenteFilas fuente = FuenteFilas.abrir(archivo)) {
+			session.doWork(conexion -> {
+				conexion.setAutoCommit(false);
+				try {
+					List<FilaCsv> lote = new ArrayList<>(TAM_LOTE);
+					boolean quedan = true;
+					while (quedan) {
+						FilaCsv fila = fuente.siguiente();
+						quedan = fila != null;
+						if (quedan) lote.add(fila);
+						if (lote.size() == TAM_LOTE || (!quedan && !lote.isEmpty())) {
+							DiccionarioDimensiones.insertarParticipaciones(conexion, registro.resolverLote(conexion, lote));
+							conexion.commit();
+							filas.addAndGet(lote.size());
+							lote.clear();
+						}
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			System.out.println("Archivo cargado: " + archivo.getFileName());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
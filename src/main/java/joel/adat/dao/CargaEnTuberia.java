@@ -0,0 +1,252 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.HibernateUtil;
+import org.hibernate.Session;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase que carga el CSV en una tubería de tres etapas: un hilo lector que reparte bloques de líneas,
+ * un grupo de hilos que las convierte en {@link FilaCsv} y varios hilos escritores, cada uno con su
+ * propia sesión y conexión, que escriben los lotes en la base de datos.
+ *
+ * <p>Las etapas se comunican mediante colas acotadas, de forma que un lector más rápido que la base de
+ * datos se bloquea en lugar de llenar la memoria. La ocupación de las colas se muestra periódicamente.</p>
+ */
+public class CargaEnTuberia {
+
+	// Bloque vacío que indica a la etapa siguiente que no quedan más datos
+	private static final List<?> FIN = Collections.emptyList();
+
+	private final int hilosParser;
+	private final int hilosEscritura;
+	private final int tamLoteInicial;
+	private ControlLote control;
+	private final BlockingQueue<List<String>> colaLineas;
+	private final BlockingQueue<List<FilaCsv>> colaFilas;
+	private final AtomicInteger parsersActivos;
+	private final AtomicLong filasEscritas = new AtomicLong();
+	private volatile Throwable error;
+
+	/**
+	 * Constructor que configura el paralelismo de cada etapa.
+	 *
+	 * @param hilosParser Número de hilos que convierten líneas en filas.
+	 * @param hilosEscritura Número de hilos escritores, cada uno con su propia conexión.
+	 * @param tamLote Número inicial de filas de cada bloque que viaja por la tubería; después lo ajusta
+	 *                un {@link ControlLote} según el rendimiento de los escritores.
+	 * @param capacidadCola Número máximo de bloques en espera en cada cola.
+	 */
+	public CargaEnTuberia(int hilosParser, int hilosEscritura, int tamLote, int capacidadCola) {
+		this.hilosParser = hilosParser;
+		this.hilosEscritura = hilosEscritura;
+		this.tamLoteInicial = tamLote;
+		this.colaLineas = new ArrayBlockingQueue<>(capacidadCola);
+		this.colaFilas = new ArrayBlockingQueue<>(capacidadCola);
+		this.parsersActivos = new AtomicInteger(hilosParser);
+	}
+
+	/**
+	 * Ejecuta la carga completa del CSV y espera a que terminen todas las etapas.
+	 *
+	 * @param CSV El archivo CSV a cargar.
+	 */
+	public void cargar(File CSV) {
+		long inicio = System.nanoTime();
+		DiccionarioDimensiones diccionario = new DiccionarioDimensiones();
+		try (Session session = HibernateUtil.openSession()) {
+			session.doWork(diccionario::cargar);
+		}
+		control = new ControlLote("tuberia", tamLoteInicial, 100, 20_000);
+
+		List<Thread> hilos = new ArrayList<>();
+		hilos.add(new Thread(() -> leer(CSV), "lector-csv"));
+		for (int i = 0; i < hilosParser; i++) {
+			hilos.add(new Thread(this::convertir, "parser-csv-" + i));
+		}
+		for (int i = 0; i < hilosEscritura; i++) {
+			hilos.add(new Thread(() -> escribir(diccionario), "escritor-bd-" + i));
+		}
+		Thread monitor = new Thread(this::mostrarColas, "monitor-colas");
+		monitor.setDaemon(true);
+
+		hilos.forEach(Thread::start);
+		monitor.start();
+		try {
+			for (Thread hilo : hilos) {
+				hilo.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			hilos.forEach(Thread::interrupt);
+		}
+		monitor.interrupt();
+		control.close();
+
+		if (error != null) {
+			System.out.println("Error durante la carga del CSV: " + error.getMessage());
+			error.printStackTrace();
+			return;
+		}
+		double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+		System.out.printf("La carga de la información se ha realizado correctamente: %d filas en %.1f s (%.0f filas/s)%n",
+				filasEscritas.get(), segundos, filasEscritas.get() / segundos);
+	}
+
+	/**
+	 * Etapa lectora: lee el archivo y reparte bloques de filas a los parsers. Una fila con un campo
+	 * entre comillas que contiene saltos de línea ocupa varias líneas y viaja entera en el mismo bloque.
+	 */
+	@SuppressWarnings("unchecked")
+	private void leer(File CSV) {
+		try (BufferedReader br = new BufferedReader(new FileReader(CSV))) {
+			String linea = br.readLine();
+			if (linea == null || !linea.equals(FilaCsv.CABECERA)) {
+				throw new IOException("El formato del CSV no es correcto.");
+			}
+			List<String> bloque = new ArrayList<>(control.getTamLoteActual());
+			while ((linea = FuenteCsvTexto.leerFila(br)) != null && error == null) {
+				bloque.add(linea);
+				if (bloque.size() >= control.getTamLoteActual()) {
+					colaLineas.put(bloque);
+					bloque = new ArrayList<>(control.getTamLoteActual());
+				}
+			}
+			if (!bloque.isEmpty()) {
+				colaLineas.put(bloque);
+			}
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			enviarFin(colaLineas, (List<String>) FIN, hilosParser);
+		}
+	}
+
+	/**
+	 * Etapa de conversión: transforma cada bloque de líneas en filas tipadas.
+	 */
+	@SuppressWarnings("unchecked")
+	private void convertir() {
+		try {
+			List<String> bloque;
+			while ((bloque = colaLineas.take()) != FIN) {
+				// Tras un error se siguen vaciando las colas para que las otras etapas no se bloqueen
+				if (error != null) continue;
+				try {
+					List<FilaCsv> filas = new ArrayList<>(bloque.size());
+					for (String linea : bloque) {
+						filas.add(FilaCsv.desdeCampos(LectorCsvMapeado.dividirLinea(linea)));
+					}
+					colaFilas.put(filas);
+				} catch (RuntimeException e) {
+					error = e;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// El último parser en terminar avisa a todos los escritores
+			if (parsersActivos.decrementAndGet() == 0) {
+				enviarFin(colaFilas, (List<FilaCsv>) FIN, hilosEscritura);
+			}
+		}
+	}
+
+	/**
+	 * Etapa escritora: cada hilo abre su propia sesión y confirma un lote cada vez.
+	 * Las dimensiones nuevas se resuelven y confirman en exclusión mutua, para que los demás
+	 * escritores vean los IDs generados antes de insertar participaciones que los usen.
+	 */
+	private void escribir(DiccionarioDimensiones diccionario) {
+		try (Session session = HibernateUtil.openSession()) {
+			session.doWork(conexion -> {
+				conexion.setAutoCommit(false);
+				try {
+					List<FilaCsv> lote;
+					while ((lote = colaFilas.take()) != FIN) {
+						// Tras un error se siguen vaciando las colas para que las otras etapas no se bloqueen
+						if (error != null) continue;
+						try {
+							long inicioLote = System.nanoTime();
+							long nanosCommit = escribirLote(conexion, diccionario, lote);
+							control.registrar(lote.size(), System.nanoTime() - inicioLote, nanosCommit);
+							filasEscritas.addAndGet(lote.size());
+						} catch (SQLException | RuntimeException e) {
+							// Se sigue vaciando la cola para que los parsers no se queden bloqueados en put
+							error = e;
+							try {
+								conexion.rollback();
+							} catch (SQLException ex) {
+								e.addSuppressed(ex);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		} catch (Exception e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * @return El tiempo en nanosegundos del commit de las participaciones.
+	 */
+	private static long escribirLote(Connection conexion, DiccionarioDimensiones diccionario, List<FilaCsv> lote)
+			throws SQLException {
+		List<DiccionarioDimensiones.ParticipacionPendiente> pendientes;
+		synchronized (diccionario) {
+			try {
+				pendientes = diccionario.resolverLote(conexion, lote);
+				conexion.commit();
+				diccionario.confirmarLote();
+			} catch (SQLException | RuntimeException e) {
+				// Los IDs de las dimensiones de este lote no llegan a existir
+				diccionario.deshacerLote();
+				throw e;
+			}
+		}
+		DiccionarioDimensiones.insertarParticipaciones(conexion, pendientes);
+		long inicioCommit = System.nanoTime();
+		conexion.commit();
+		return System.nanoTime() - inicioCommit;
+	}
+
+	private static <T> void enviarFin(BlockingQueue<T> cola, T fin, int consumidores) {
+		try {
+			for (int i = 0; i < consumidores; i++) {
+				cola.put(fin);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Muestra cada pocos segundos la ocupación de las colas y las filas escritas.
+	 */
+	private void mostrarColas() {
+		try {
+			while (true) {
+				Thread.sleep(2000);
+				System.out.printf("Cola de líneas: %d | Cola de filas: %d | Filas escritas: %d | Tamaño de lote: %d%n",
+						colaLineas.size(), colaFilas.size(), filasEscritas.get(), control.getTamLoteActual());
+			}
+		} catch (InterruptedException e) {
+			// Fin de la carga
+		}
+	}
+}
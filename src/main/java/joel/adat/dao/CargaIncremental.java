@@ -0,0 +1,166 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase que aplica una nueva edición del CSV comparándola con las huellas de la carga anterior, de forma
+ * que solo se insertan, actualizan o borran las participaciones que han cambiado.
+ *
+ * <p>Una fila cuya clave natural no está en el {@link AlmacenHuellas} se inserta; si está pero con otros
+ * datos (edad, equipo o medalla) se actualiza; y las huellas que no aparecen en el nuevo archivo se
+ * borran de la tabla Participacion. La primera ejecución, sin huellas, equivale a una carga completa.</p>
+ *
+ * <p>Los diccionarios no se cargan enteros: antes de cada lote se consultan solo las claves de sus filas,
+ * así que el coste depende de lo que ha cambiado y no del tamaño de la base de datos.</p>
+ */
+public class CargaIncremental {
+
+	private static final int TAM_LOTE = 1000;
+
+	private final AlmacenHuellas anteriores;
+	private final AlmacenHuellas actualizadas;
+	private final DiccionarioDimensiones diccionario = new DiccionarioDimensiones();
+	private long sinCambios;
+	private long insertadas;
+	private long actualizadasFilas;
+	private long borradas;
+
+	/**
+	 * @param rutaHuellas Archivo donde se guardan las huellas entre cargas.
+	 */
+	public CargaIncremental(Path rutaHuellas) {
+		this.anteriores = new AlmacenHuellas(rutaHuellas);
+		this.actualizadas = new AlmacenHuellas(rutaHuellas);
+	}
+
+	/**
+	 * Aplica las diferencias del archivo en una única transacción y, si se confirma, guarda las nuevas huellas.
+	 *
+	 * @param CSV Ruta del archivo CSV.
+	 */
+	public void cargar(Path CSV) {
+		long inicio = System.nanoTime();
+		Session session = HibernateUtil.getSessionFactory().openSession();
+		Transaction transaction = null;
+
+		try {
+			anteriores.cargar();
+			transaction = session.beginTransaction();
+			session.doWork(conexion -> {
+				try {
+					compararArchivo(conexion, CSV);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				borrarDesaparecidas(conexion);
+			});
+			transaction.commit();
+			actualizadas.guardar();
+		} catch (Exception e) {
+			if (transaction != null) {
+				transaction.rollback();
+			}
+			System.out.println("Error en la carga incremental: " + e.getMessage());
+			e.printStackTrace();
+			return;
+		} finally {
+			session.close();
+		}
+
+		double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+		System.out.printf("Carga incremental terminada en %.1f s: %d sin cambios, %d insertadas, %d actualizadas, %d borradas%n",
+				segundos, sinCambios, insertadas, actualizadasFilas, borradas);
+	}
+
+	private void compararArchivo(Connection conexion, Path CSV) throws IOException, SQLException {
+		Map<Long, AlmacenHuellas.Huella> pendientes = anteriores.getHuellas();
+		try (FuenteFilas fuente = FuenteFilas.abrir(CSV)) {
+			List<FilaCsv> nuevas = new ArrayList<>(TAM_LOTE);
+			List<FilaCsv> cambiadas = new ArrayList<>(TAM_LOTE);
+			FilaCsv fila;
+			while ((fila = fuente.siguiente()) != null) {
+				long clave = AlmacenHuellas.hash(fila.claveParticipacion());
+				// Lo que quede en el mapa de huellas anteriores al terminar son las filas desaparecidas
+				AlmacenHuellas.Huella anterior = pendientes.remove(clave);
+				if (anterior != null && anterior.datos == AlmacenHuellas.hash(fila.datosParticipacion())) {
+					actualizadas.put(clave, anterior);
+					sinCambios++;
+				} else if (anterior == null) {
+					nuevas.add(fila);
+					if (nuevas.size() == TAM_LOTE) aplicar(conexion, nuevas, false);
+				} else {
+					cambiadas.add(fila);
+					if (cambiadas.size() == TAM_LOTE) aplicar(conexion, cambiadas, true);
+				}
+			}
+			aplicar(conexion, nuevas, false);
+			aplicar(conexion, cambiadas, true);
+		}
+	}
+
+	/**
+	 * Inserta las dimensiones y participaciones que falten y, si las filas ya existían, actualiza sus datos.
+	 */
+	private void aplicar(Connection conexion, List<FilaCsv> filas, boolean existentes) throws SQLException {
+		if (filas.isEmpty()) return;
+		diccionario.cargarLote(conexion, filas);
+		List<DiccionarioDimensiones.ParticipacionPendiente> pendientes = diccionario.resolverLote(conexion, filas);
+		DiccionarioDimensiones.insertarParticipaciones(conexion, pendientes);
+		insertadas += pendientes.size();
+
+		try (PreparedStatement ps = existentes ? conexion.prepareStatement(
+				"UPDATE Participacion SET id_equipo = ?, edad = ?, medalla = ? WHERE id_deportista = ? AND id_evento = ?") : null) {
+			for (FilaCsv fila : filas) {
+				int[] ids = diccionario.idsDe(fila);
+				actualizadas.put(AlmacenHuellas.hash(fila.claveParticipacion()),
+						new AlmacenHuellas.Huella(AlmacenHuellas.hash(fila.datosParticipacion()), ids[0], ids[1]));
+				if (ps != null) {
+					ps.setInt(1, ids[2]);
+					ps.setInt(2, fila.getEdad());
+					ps.setString(3, fila.getMedalla());
+					ps.setInt(4, ids[0]);
+					ps.setInt(5, ids[1]);
+					ps.addBatch();
+				}
+			}
+			if (ps != null) {
+				ps.executeBatch();
+				actualizadasFilas += filas.size();
+			}
+		}
+		diccionario.confirmarLote();
+		filas.clear();
+	}
+
+	private void borrarDesaparecidas(Connection conexion) throws SQLException {
+		Map<Long, AlmacenHuellas.Huella> desaparecidas = anteriores.getHuellas();
+		if (desaparecidas.isEmpty()) return;
+		try (PreparedStatement ps = conexion.prepareStatement(
+				"DELETE FROM Participacion WHERE id_deportista = ? AND id_evento = ?")) {
+			int enLote = 0;
+			for (AlmacenHuellas.Huella huella : desaparecidas.values()) {
+				ps.setInt(1, huella.idDeportista);
+				ps.setInt(2, huella.idEvento);
+				ps.addBatch();
+				if (++enLote == TAM_LOTE) {
+					ps.executeBatch();
+					enLote = 0;
+				}
+			}
+			ps.executeBatch();
+		}
+		borradas = desaparecidas.size();
+	}
+}
@@ -0,0 +1,161 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.HibernateUtil;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase que carga el CSV con una {@link StatelessSession} confirmando una transacción cada
+ * {@code tamBloque} filas.
+ *
+ * <p>La sesión sin estado no tiene caché de primer nivel, así que la memoria no crece con el tamaño
+ * del archivo, y el {@link DiccionarioDimensiones} solo trae y guarda las claves del bloque en curso.
+ * Si un bloque falla se deshace solo ese bloque y sus líneas se escriben en un archivo de
+ * rechazos, con la misma cabecera que el CSV, para poder volver a cargarlas más tarde.</p>
+ *
+ * <p>Tras cada bloque se guarda un {@link PuntoControl}; si la carga se corta, la siguiente ejecución
+ * sobre el mismo archivo salta directamente a la primera fila pendiente.</p>
+ */
+public class CargaPorBloques {
+
+	private final int tamBloque;
+	private final Path rutaRechazos;
+	private BufferedWriter rechazos;
+	private boolean reanudando;
+	private long filasConfirmadas;
+	private long filasRechazadas;
+
+	/**
+	 * @param tamBloque Número de filas de cada transacción.
+	 * @param rutaRechazos Archivo donde se escriben las filas de los bloques que fallan.
+	 */
+	public CargaPorBloques(int tamBloque, Path rutaRechazos) {
+		this.tamBloque = tamBloque;
+		this.rutaRechazos = rutaRechazos;
+	}
+
+	/**
+	 * Carga el archivo completo.
+	 *
+	 * @param CSV Ruta del archivo CSV.
+	 */
+	public void cargar(Path CSV) {
+		long inicio = System.nanoTime();
+		try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+			 LectorCsvMapeado lector = new LectorCsvMapeado(CSV)) {
+			if (!lector.siguienteFila() || !FilaCsv.esCabecera(lector)) {
+				System.out.println("El formato del CSV no es correcto.");
+				return;
+			}
+
+			PuntoControl puntoControl = new PuntoControl(CSV);
+			reanudando = puntoControl.cargar();
+			if (reanudando) {
+				System.out.println("Reanudando la carga tras " + puntoControl.getFilas() + " filas.");
+				lector.saltarA(puntoControl.getPosicion());
+			}
+			long filas = puntoControl.getFilas();
+			InformeProgreso progreso = new InformeProgreso(lector.tamArchivo(), lector.posicion(), filas);
+
+			DiccionarioDimensiones diccionario = new DiccionarioDimensiones();
+			List<FilaCsv> bloque = new ArrayList<>(tamBloque);
+			List<String> lineas = new ArrayList<>(tamBloque);
+			while (lector.siguienteFila()) {
+				filas++;
+				try {
+					bloque.add(FilaCsv.desdeLector(lector));
+					lineas.add(lector.filaOriginal());
+				} catch (RuntimeException e) {
+					// Una fila que no se puede convertir se rechaza sola, sin afectar a su bloque
+					rechazar(List.of(lector.filaOriginal()), e);
+				}
+				if (bloque.size() == tamBloque) {
+					procesarBloque(session, diccionario, bloque, lineas);
+					bloque.clear();
+					lineas.clear();
+					puntoControl.guardar(lector.posicion(), filas);
+					progreso.actualizar(filas, lector.posicion());
+				}
+			}
+			if (!bloque.isEmpty()) {
+				procesarBloque(session, diccionario, bloque, lineas);
+			}
+			puntoControl.borrar();
+		} catch (IOException e) {
+			System.out.println("Error al procesar el archivo CSV.");
+			e.printStackTrace();
+		} finally {
+			cerrarRechazos();
+		}
+
+		double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+		System.out.printf("Carga terminada: %d filas confirmadas y %d rechazadas en %.1f s (%.0f filas/s)%n",
+				filasConfirmadas, filasRechazadas, segundos, filasConfirmadas / segundos);
+		if (filasRechazadas > 0) {
+			System.out.println("Las filas rechazadas se han guardado en " + rutaRechazos);
+		}
+	}
+
+	/**
+	 * Escribe un bloque en su propia transacción. Si falla, el bloque se envía al archivo de rechazos.
+	 * Al terminar se vacía el diccionario, así que cada bloque consulta solo las claves que usa.
+	 */
+	private void procesarBloque(StatelessSession session, DiccionarioDimensiones diccionario,
+								List<FilaCsv> bloque, List<String> lineas) throws IOException {
+		Transaction transaction = session.beginTransaction();
+		try {
+			session.doWork(conexion -> {
+				diccionario.cargarLote(conexion, bloque);
+				DiccionarioDimensiones.insertarParticipaciones(conexion, diccionario.resolverLote(conexion, bloque));
+			});
+			transaction.commit();
+			diccionario.confirmarLote();
+			filasConfirmadas += bloque.size();
+		} catch (RuntimeException e) {
+			if (transaction.isActive()) transaction.rollback();
+			diccionario.deshacerLote();
+			rechazar(lineas, e);
+		} finally {
+			diccionario.vaciar();
+		}
+	}
+
+	private void rechazar(List<String> lineas, Exception causa) throws IOException {
+		if (rechazos == null) {
+			// Al reanudar una carga se añaden los rechazos a los de la ejecución anterior
+			boolean aniadir = reanudando && Files.exists(rutaRechazos);
+			rechazos = Files.newBufferedWriter(rutaRechazos, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					aniadir ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+			if (!aniadir) {
+				rechazos.write(FilaCsv.CABECERA);
+				rechazos.newLine();
+			}
+		}
+		for (String linea : lineas) {
+			rechazos.write(linea);
+			rechazos.newLine();
+		}
+		rechazos.flush();
+		filasRechazadas += lineas.size();
+		System.out.println("Se han rechazado " + lineas.size() + " filas: " + causa.getMessage());
+	}
+
+	private void cerrarRechazos() {
+		if (rechazos != null) {
+			try {
+				rechazos.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package joel.adat.dao;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Clase que ajusta el tamaño de lote de una carga mientras se ejecuta, en lugar de usar una constante.
+ *
+ * <p>Cada escritor informa de las filas, el tiempo total y el tiempo de commit de cada lote que confirma.
+ * Cada {@link #LOTES_POR_VENTANA} lotes se calcula el rendimiento de la ventana en filas por segundo y se
+ * mueve el tamaño un paso en la misma dirección que la vez anterior si ha mejorado, o en la contraria si
+ * ha empeorado. Si la latencia media del commit supera {@link #LATENCIA_MAXIMA_MS} el lote se reduce
+ * siempre, para no mantener bloqueos demasiado tiempo en la base de datos.</p>
+ *
+ * <p>Las decisiones se muestran por consola y se publican por JMX con el nombre
+ * {@code joel.adat:type=ControlLote,name=<nombre>}. Es seguro entre hilos.</p>
+ */
+public class ControlLote implements ControlLoteMBean, AutoCloseable {
+
+	private static final int LOTES_POR_VENTANA = 3;
+	private static final long LATENCIA_MAXIMA_MS = 2000;
+	private static final double PASO = 1.25;
+	// Variaciones de rendimiento menores que esta se consideran ruido y no cambian la dirección
+	private static final double TOLERANCIA = 0.03;
+
+	private final String nombre;
+	private final int minimo;
+	private final int maximo;
+	private ObjectName registro;
+
+	private int tamLote;
+	private int direccion = 1;
+	private double rendimientoAnterior;
+
+	private int lotesVentana;
+	private long filasVentana;
+	private long nanosVentana;
+	private long nanosCommitVentana;
+
+	private long lotes;
+	private long filas;
+	private double filasPorSegundo;
+	private double mejorFilasPorSegundo;
+	private int mejorTamLote;
+	private double latenciaCommitMediaMs;
+	private long subidas;
+	private long bajadas;
+	private String ultimaDecision = "";
+
+	/**
+	 * @param nombre Nombre de la carga, usado en los mensajes y en el nombre JMX.
+	 * @param inicial Tamaño de lote con el que empieza.
+	 * @param minimo Tamaño mínimo.
+	 * @param maximo Tamaño máximo.
+	 */
+	public ControlLote(String nombre, int inicial, int minimo, int maximo) {
+		this.nombre = nombre;
+		this.minimo = minimo;
+		this.maximo = maximo;
+		this.tamLote = Math.max(minimo, Math.min(maximo, inicial));
+		this.mejorTamLote = tamLote;
+		try {
+			ObjectName objectName = new ObjectName("joel.adat:type=ControlLote,name=" + ObjectName.quote(nombre));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			registro = objectName;
+		} catch (JMException e) {
+			// Las métricas por JMX son opcionales; la carga sigue aunque no se puedan publicar
+			System.out.println("No se han podido publicar las métricas del lote por JMX: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return El tamaño que debe tener el siguiente lote.
+	 */
+	@Override
+	public synchronized int getTamLoteActual() {
+		return tamLote;
+	}
+
+	/**
+	 * Registra un lote ya confirmado y, al completar una ventana, ajusta el tamaño.
+	 *
+	 * @param filasLote Filas del lote.
+	 * @param nanosLote Tiempo total del lote, incluido el commit.
+	 * @param nanosCommit Tiempo del commit.
+	 */
+	public synchronized void registrar(int filasLote, long nanosLote, long nanosCommit) {
+		lotes++;
+		filas += filasLote;
+		lotesVentana++;
+		filasVentana += filasLote;
+		nanosVentana += nanosLote;
+		nanosCommitVentana += nanosCommit;
+		if (lotesVentana < LOTES_POR_VENTANA) return;
+
+		filasPorSegundo = filasVentana * 1_000_000_000.0 / Math.max(1, nanosVentana);
+		latenciaCommitMediaMs = nanosCommitVentana / 1_000_000.0 / lotesVentana;
+		if (filasPorSegundo > mejorFilasPorSegundo) {
+			mejorFilasPorSegundo = filasPorSegundo;
+			mejorTamLote = tamLote;
+		}
+
+		String motivo;
+		if (latenciaCommitMediaMs > LATENCIA_MAXIMA_MS) {
+			direccion = -1;
+			motivo = "commit demasiado lento";
+		} else if (rendimientoAnterior > 0 && filasPorSegundo < rendimientoAnterior * (1 - TOLERANCIA)) {
+			direccion = -direccion;
+			motivo = "el rendimiento ha empeorado";
+		} else {
+			motivo = "el rendimiento no ha empeorado";
+		}
+		// En los límites se cambia de dirección para seguir explorando
+		if ((direccion > 0 && tamLote >= maximo) || (direccion < 0 && tamLote <= minimo)) {
+			direccion = -direccion;
+		}
+
+		int anterior = tamLote;
+		int nuevo = direccion > 0 ? (int) Math.ceil(tamLote * PASO) : (int) (tamLote / PASO);
+		tamLote = Math.max(minimo, Math.min(maximo, nuevo));
+		if (tamLote > anterior) subidas++;
+		if (tamLote < anterior) bajadas++;
+		rendimientoAnterior = filasPorSegundo;
+
+		ultimaDecision = String.format("%d -> %d (%.0f filas/s, commit %.0f ms, %s)",
+				anterior, tamLote, filasPorSegundo, latenciaCommitMediaMs, motivo);
+		System.out.println("[" + nombre + "] Tamaño de lote " + ultimaDecision);
+
+		lotesVentana = 0;
+		filasVentana = 0;
+		nanosVentana = 0;
+		nanosCommitVentana = 0;
+	}
+
+	/**
+	 * Muestra el resumen de la carga y retira las métricas de JMX.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			System.out.printf("[%s] %d lotes, %d subidas y %d bajadas; mejor rendimiento %.0f filas/s con lotes de %d filas%n",
+					nombre, lotes, subidas, bajadas, mejorFilasPorSegundo, mejorTamLote);
+		}
+		if (registro != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(registro);
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+			registro = null;
+		}
+	}
+
+	@Override
+	public synchronized long getLotes() {
+		return lotes;
+	}
+
+	@Override
+	public synchronized long getFilas() {
+		return filas;
+	}
+
+	@Override
+	public synchronized double getFilasPorSegundo() {
+		return filasPorSegundo;
+	}
+
+	@Override
+	public synchronized double getMejorFilasPorSegundo() {
+		return mejorFilasPorSegundo;
+	}
+
+	@Override
+	public synchronized int getMejorTamLote() {
+		return mejorTamLote;
+	}
+
+	@Override
+	public synchronized double getLatenciaCommitMediaMs() {
+		return latenciaCommitMediaMs;
+	}
+
+	@Override
+	public synchronized long getSubidas() {
+		return subidas;
+	}
+
+	@Override
+	public synchronized long getBajadas() {
+		return bajadas;
+	}
+
+	@Override
+	public synchronized String getUltimaDecision() {
+		return ultimaDecision;
+	}
+}
@@ -0,0 +1,28 @@
+package joel.adat.dao;
+
+/**
+ * Métricas de un {@link ControlLote} publicadas por JMX, para seguir sus decisiones desde JConsole o
+ * VisualVM mientras dura la carga.
+ */
+public interface ControlLoteMBean {
+
+	int getTamLoteActual();
+
+	long getLotes();
+
+	long getFilas();
+
+	double getFilasPorSegundo();
+
+	double getMejorFilasPorSegundo();
+
+	int getMejorTamLote();
+
+	double getLatenciaCommitMediaMs();
+
+	long getSubidas();
+
+	long getBajadas();
+
+	String getUltimaDecision();
+}
@@ -1,23 +1,30 @@
 package joel.adat.dao;
 
+import joel.adat.bbdd.DataSourceEnrutado;
 import joel.adat.bbdd.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import joel.adat.model.*;
 
 import java.io.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class DaoCrearTablaDocker {
 
 	/**
-	 * Metodo para crear la BBDD usando Hibernate
-	 * @param pathString
+	 * Metodo para crear la BBDD usando Hibernate. Se confirma una transacción por lote y el tamaño del
+	 * lote lo ajusta un {@link ControlLote} según el rendimiento y la latencia de cada commit.
+	 * @param pathString Ruta del archivo CSV o JSON-Lines, comprimido o no con gzip. El formato se detecta
+	 *                   por el contenido, no por la extensión.
 	 */
 	public static void crearLaBBDD(String pathString) {
 		// Crear la sesión de Hibernate
 		Session session = HibernateUtil.getSessionFactory().openSession();
 		Transaction transaction = null;
+		// Claves registradas en la caché de IDs desde el último commit, para olvidarlas si se deshace el lote
+		List<Runnable> clavesLote = new ArrayList<>();
 
 		try {
 			// Comienza la transacción
@@ -25,72 +32,86 @@ public class DaoCrearTablaDocker {
 
 			// Verificar si el archivo CSV existe y procesarlo
 			File CSV = new File(pathString);
-			if (CSV.isFile() && pathString.endsWith(".csv")) {
-				try (BufferedReader br = new BufferedReader(new FileReader(CSV))) {
-					String linea = br.readLine();
-					if (linea != null && linea.equals("ID,Name,Sex,Age,Height,Weight,Team,NOC,Games,Year,Season,City,Sport,Event,Medal")) {
-						linea = br.readLine();
-						while (linea != null) {
-							String[] leido = linea.split(",");
-
-							// Verifica si el deportista ya existe y, si no, lo crea
-							String deportistaId = DaoDeportista.conseguirIdDeportista(leido[1], leido[2].charAt(0), Float.parseFloat(leido[5]), Integer.parseInt(leido[4]));
-							if (deportistaId == null) {
-								// Usamos el constructor con todos los atributos
-								ModeloDeportista deportista = new ModeloDeportista(leido[1], leido[2].charAt(0), Integer.parseInt(leido[5]), Integer.parseInt(leido[4]));
-								session.save(deportista);
-							}
-
-							// Verifica si el deporte ya existe y, si no, lo crea
-							String deporteId = DaoDeporte.conseguirIdDeporte(leido[12]);
-							if (deporteId == null) {
-								ModeloDeporte deporte = new ModeloDeporte(leido[12]);
-								session.save(deporte);
-							}
-
-							// Verifica si el equipo ya existe y, si no, lo crea
-							String equipoId = DaoEquipo.conseguirIdEquipo(leido[6], leido[7]);
-							if (equipoId == null) {
-								ModeloEquipo equipo = new ModeloEquipo(leido[6], leido[7]);
-								session.save(equipo);
-							}
-
-							// Verifica si la olimpiada ya existe y, si no, la crea
-							String olimpiadaId = DaoOlimpiada.conseguirIdOlimpiada(leido[8], Integer.parseInt(leido[9]), leido[10], leido[11]);
-							if (olimpiadaId == null) {
-								ModeloOlimpiada olimpiada = new ModeloOlimpiada(leido[8], Integer.parseInt(leido[9]), leido[10], leido[11]);
-								session.save(olimpiada);
-							}
-
-							// Verifica si el evento ya existe y, si no, lo crea
-							String eventoId = DaoEvento.conseguirIdEvento(leido[13], Integer.parseInt(olimpiadaId), Integer.parseInt(deporteId));
-							if (eventoId == null) {
-								ModeloEvento evento = new ModeloEvento(leido[13], Integer.parseInt(olimpiadaId), Integer.parseInt(deporteId));
-								session.save(evento);
-							}
-
-							// Verifica si la participación ya existe y, si no, la crea
-							String participacionId = DaoParticipacion.existeIdParticipacion(Integer.parseInt(deportistaId), Integer.parseInt(eventoId)) ? "existe" : "no existe";
-							if (participacionId.equals("no existe")) {
-								// Crear una participación usando los constructores completos
-								ModeloParticipacion participacion = new ModeloParticipacion(
-										new ModeloDeportista(Integer.parseInt(deportistaId)), // Suponemos que deportistaId es un Integer, si no, ajusta
-										new ModeloEvento(Integer.parseInt(eventoId)), // Lo mismo para el evento
-										new ModeloEquipo(Integer.parseInt(equipoId)), // Lo mismo para el equipo
-										Integer.parseInt(leido[3]), // Edad
-										leido[14] // Medalla
-								);
-								session.save(participacion);
-							}
-
-							linea = br.readLine();
+			if (CSV.isFile()) {
+				// El formato (CSV, JSON-Lines, comprimido o no) se detecta por el contenido del archivo
+				try (FuenteFilas fuente = FuenteFilas.abrir(CSV.toPath());
+					 ControlLote control = new ControlLote("crearLaBBDD", 100, 10, 5000)) {
+					FilaCsv fila;
+					int enLote = 0;
+					long inicioLote = System.nanoTime();
+					while ((fila = fuente.siguiente()) != null) {
+						// Verifica si el deportista ya existe y, si no, lo crea
+						String deportistaId = DaoDeportista.conseguirIdDeportista(fila.getNombre(), fila.getSexo(), fila.getPeso(), fila.getAltura());
+						if (deportistaId == null) {
+							// Usamos el constructor con todos los atributos
+							ModeloDeportista deportista = new ModeloDeportista(fila.getNombre(), fila.getSexo(), fila.getAltura(), fila.getPeso());
+							deportistaId = registrar(CacheIds.DEPORTISTAS, CacheIds.clave(fila.getNombre(), fila.getSexo(), fila.getPeso(), fila.getAltura()),
+									(Integer) session.save(deportista), clavesLote);
+						}
+
+						// Verifica si el deporte ya existe y, si no, lo crea
+						String deporteId = DaoDeporte.conseguirIdDeporte(fila.getDeporte());
+						if (deporteId == null) {
+							ModeloDeporte deporte = new ModeloDeporte(fila.getDeporte());
+							deporteId = registrar(CacheIds.DEPORTES, fila.getDeporte(), (Integer) session.save(deporte), clavesLote);
+						}
+
+						// Verifica si el equipo ya existe y, si no, lo crea
+						String equipoId = DaoEquipo.conseguirIdEquipo(fila.getEquipo(), fila.getNoc());
+						if (equipoId == null) {
+							ModeloEquipo equipo = new ModeloEquipo(fila.getEquipo(), fila.getNoc());
+							equipoId = registrar(CacheIds.EQUIPOS, CacheIds.clave(fila.getEquipo(), fila.getNoc()),
+									(Integer) session.save(equipo), clavesLote);
+						}
+
+						// Verifica si la olimpiada ya existe y, si no, la crea
+						String olimpiadaId = DaoOlimpiada.conseguirIdOlimpiada(fila.getJuegos(), fila.getAnio(), fila.getTemporada(), fila.getCiudad());
+						if (olimpiadaId == null) {
+							ModeloOlimpiada olimpiada = new ModeloOlimpiada(fila.getJuegos(), fila.getAnio(), fila.getTemporada(), fila.getCiudad());
+							olimpiadaId = registrar(CacheIds.OLIMPIADAS, CacheIds.clave(fila.getJuegos(), fila.getAnio(), fila.getTemporada(), fila.getCiudad()),
+									(Integer) session.save(olimpiada), clavesLote);
+						}
+
+						// Verifica si el evento ya existe y, si no, lo crea
+						String eventoId = DaoEvento.conseguirIdEvento(fila.getEvento(), Integer.parseInt(olimpiadaId), Integer.parseInt(deporteId));
+						if (eventoId == null) {
+							ModeloEvento evento = new ModeloEvento(fila.getEvento(), Integer.parseInt(olimpiadaId), Integer.parseInt(deporteId));
+							eventoId = registrar(CacheIds.EVENTOS, CacheIds.clave(fila.getEvento(), olimpiadaId, deporteId),
+									(Integer) session.save(evento), clavesLote);
+						}
+
+						// Verifica si la participación ya existe y, si no, la crea
+						String participacionId = DaoParticipacion.existeIdParticipacion(Integer.parseInt(deportistaId), Integer.parseInt(eventoId)) ? "existe" : "no existe";
+						if (participacionId.equals("no existe")) {
+							// Crear una participación usando los constructores completos
+							ModeloParticipacion participacion = new ModeloParticipacion(
+									new ModeloDeportista(Integer.parseInt(deportistaId)), // Suponemos que deportistaId es un Integer, si no, ajusta
+									new ModeloEvento(Integer.parseInt(eventoId)), // Lo mismo para el evento
+									new ModeloEquipo(Integer.parseInt(equipoId)), // Lo mismo para el equipo
+									fila.getEdad(), // Edad
+									fila.getMedalla() // Medalla
+							);
+							session.save(participacion);
+						}
+
+						// Al completar el lote se confirma y se vacía la caché de la sesión
+						if (++enLote >= control.getTamLoteActual()) {
+							long inicioCommit = System.nanoTime();
+							transaction.commit();
+							clavesLote.clear();
+							// Las búsquedas de los DAO leen de la principal mientras las réplicas se ponen al día
+							DataSourceEnrutado.registrarEscritura();
+							long fin = System.nanoTime();
+							control.registrar(enLote, fin - inicioLote, fin - inicioCommit);
+							session.clear();
+							transaction = session.beginTransaction();
+							enLote = 0;
+							inicioLote = System.nanoTime();
 						}
-						System.out.println("La carga de la información se ha realizado correctamente");
-					} else {
-						System.out.println("El formato del CSV no es correcto.");
 					}
+					System.out.println("La carga de la información se ha realizado correctamente");
 				} catch (IOException e) {
-					System.out.println("Error al procesar el archivo CSV.");
+					System.out.println("Error al procesar el archivo: " + e.getMessage());
 					e.printStackTrace();
 				}
 			} else {
@@ -99,6 +120,86 @@ public class DaoCrearTablaDocker {
 
 			// Commit de la transacción
 			transaction.commit();
+		} catch (Exception e) {
+			if (transaction != null) {
+				transaction.rollback();
+			}
+			// Los IDs del lote deshecho ya no existen
+			clavesLote.forEach(Runnable::run);
+			e.printStackTrace();
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Guarda en la caché de IDs el ID de una fila recién insertada en el lote en curso.
+	 *
+	 * <p>No basta con invalidar la clave: la siguiente búsqueda se hace en otra unidad de trabajo, que puede
+	 * ir a una réplica y no ve la fila hasta el commit, así que guardaría un negativo y la fila se
+	 * insertaría otra vez.</p>
+	 *
+	 * @param cache La caché de la tabla.
+	 * @param clave La clave natural de la fila.
+	 * @param id El ID que ha devuelto {@code session.save}; con IDENTITY la fila ya está insertada.
+	 * @param clavesLote Las acciones que olvidan las claves del lote si se deshace.
+	 * @return El ID como texto, como lo devuelven los métodos {@code conseguirId*}.
+	 */
+	private static String registrar(CacheIds cache, String clave, int id, List<Runnable> clavesLote) {
+		cache.registrar(clave, id);
+		clavesLote.add(() -> cache.invalidar(clave));
+		return String.valueOf(id);
+	}
+
+	/**
+	 * Metodo para crear la BBDD en modo masivo. Las claves naturales de las dimensiones se resuelven
+	 * contra diccionarios en memoria que se cargan una sola vez y las filas nuevas se escriben por lotes JDBC,
+	 * en lugar de hacer varias consultas por cada línea del CSV.
+	 * @param pathString Ruta del archivo CSV o JSON-Lines, comprimido o no con gzip.
+	 * @param tamLote Número de filas que se procesan en cada lote.
+	 */
+	public static void crearLaBBDDMasiva(String pathString, int tamLote) {
+		File CSV = new File(pathString);
+		if (!CSV.isFile()) {
+			System.out.println("El archivo CSV no existe o no es válido.");
+			return;
+		}
+
+		Session session = HibernateUtil.getSessionFactory().openSession();
+		Transaction transaction = null;
+
+		try {
+			transaction = session.beginTransaction();
+			session.doWork(conexion -> {
+				long inicio = System.nanoTime();
+				long filas = 0;
+				DiccionarioDimensiones diccionario = new DiccionarioDimensiones();
+				diccionario.cargar(conexion);
+
+				try (FuenteFilas fuente = FuenteFilas.abrir(CSV.toPath())) {
+					List<FilaCsv> lote = new ArrayList<>(tamLote);
+					FilaCsv fila;
+					while ((fila = fuente.siguiente()) != null) {
+						lote.add(fila);
+						if (lote.size() == tamLote) {
+							DiccionarioDimensiones.insertarParticipaciones(conexion, diccionario.resolverLote(conexion, lote));
+							diccionario.confirmarLote();
+							filas += lote.size();
+							lote.clear();
+						}
+					}
+					DiccionarioDimensiones.insertarParticipaciones(conexion, diccionario.resolverLote(conexion, lote));
+					filas += lote.size();
+				} catch (IOException e) {
+					// Se relanza para que la transacción se deshaga en lugar de confirmar una carga a medias
+					throw new SQLException("Error al procesar el archivo: " + e.getMessage(), e);
+				}
+
+				double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+				System.out.printf("La carga de la información se ha realizado correctamente: %d filas en %.1f s (%.0f filas/s)%n",
+						filas, segundos, filas / segundos);
+			});
+			transaction.commit();
 		} catch (Exception e) {
 			if (transaction != null) {
 				transaction.rollback();
@@ -108,4 +209,65 @@ public class DaoCrearTablaDocker {
 			session.close();
 		}
 	}
+
+	/**
+	 * Metodo para crear la BBDD con una tubería de hilos: un lector, varios parsers y varios escritores
+	 * con su propia conexión.
+	 * @param pathString Ruta del archivo CSV.
+	 * @param hilosParser Número de hilos que convierten las líneas.
+	 * @param hilosEscritura Número de hilos que escriben en la base de datos.
+	 * @param tamLote Número de filas que se procesan en cada lote.
+	 */
+	public static void crearLaBBDDEnParalelo(String pathString, int hilosParser, int hilosEscritura, int tamLote) {
+		File CSV = new File(pathString);
+		if (!CSV.isFile() || !pathString.endsWith(".csv")) {
+			System.out.println("El archivo CSV no existe o no es válido.");
+			return;
+		}
+		new CargaEnTuberia(hilosParser, hilosEscritura, tamLote, 2 * (hilosParser + hilosEscritura)).cargar(CSV);
+	}
+
+	/**
+	 * Metodo para crear la BBDD con una sesión sin estado que confirma cada bloque de filas por separado.
+	 * Los bloques que fallan se guardan en un archivo de rechazos junto al CSV en lugar de abortar la carga.
+	 * @param pathString Ruta del archivo CSV.
+	 * @param tamBloque Número de filas de cada transacción.
+	 */
+	public static void crearLaBBDDPorBloques(String pathString, int tamBloque) {
+		File CSV = new File(pathString);
+		if (!CSV.isFile() || !pathString.endsWith(".csv")) {
+			System.out.println("El archivo CSV no existe o no es válido.");
+			return;
+		}
+		new CargaPorBloques(tamBloque, new File(pathString + ".rechazos.csv").toPath()).cargar(CSV.toPath());
+	}
+
+	/**
+	 * Metodo para actualizar la BBDD con una nueva edición del CSV aplicando solo las filas que han cambiado.
+	 * Las huellas de la carga anterior se guardan en {@code huellas_participacion.bin}, junto al CSV.
+	 * @param pathString Ruta del archivo CSV o JSON-Lines, comprimido o no con gzip.
+	 */
+	public static void actualizarLaBBDD(String pathString) {
+		File CSV = new File(pathString);
+		if (!CSV.isFile()) {
+			System.out.println("El archivo CSV no existe o no es válido.");
+			return;
+		}
+		new CargaIncremental(CSV.toPath().resolveSibling("huellas_participacion.bin")).cargar(CSV.toPath());
+	}
+
+	/**
+	 * Metodo para crear la BBDD a partir de un directorio con un CSV por olimpiada, cargando varios
+	 * archivos a la vez.
+	 * @param pathString Ruta del directorio.
+	 * @param hilos Número de archivos que se cargan a la vez.
+	 */
+	public static void crearLaBBDDDesdeDirectorio(String pathString, int hilos) {
+		File directorio = new File(pathString);
+		if (!directorio.isDirectory()) {
+			System.out.println("El directorio no existe o no es válido.");
+			return;
+		}
+		new CargaDirectorio(hilos).cargar(directorio.toPath());
+	}
 }
@@ -1,9 +1,8 @@
 package joel.adat.dao;
 
 import joel.adat.model.ModeloDeporte;
-import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
 import java.util.ArrayList;
@@ -23,26 +22,32 @@ public class DaoDeporte {
      */
     public static List<ModeloDeporte> listaDeportesPorOlimpiada(int idOlimpiada) {
         List<ModeloDeporte> lst = new ArrayList<>();
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            // HQL para obtener los deportes asociados a una olimpiada
-            String hql = "SELECT DISTINCT e.deporte FROM ModeloEvento e WHERE e.olimpiada.id = :idOlimpiada";
-            Query<ModeloDeporte> query = session.createQuery(hql, ModeloDeporte.class);
-            query.setParameter("idOlimpiada", idOlimpiada);
-            lst = query.getResultList();
-
-            transaction.commit();
+        try {
+            // El listado se guarda por olimpiada hasta que aniadirEvento le añade un deporte
+            lst = CacheListas.DEPORTES_POR_OLIMPIADA.buscar(String.valueOf(idOlimpiada),
+                    () -> consultarDeportesPorOlimpiada(idOlimpiada));
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
         return lst;
     }
 
+    private static List<ModeloDeporte> consultarDeportesPorOlimpiada(int idOlimpiada) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+
+            // Consulta con nombre para obtener los deportes asociados a una olimpiada
+            Query<ModeloDeporte> query = session.createNamedQuery("Deporte.porOlimpiada", ModeloDeporte.class);
+            query.setParameter("idOlimpiada", idOlimpiada);
+            List<ModeloDeporte> lst = query.getResultList();
+
+            unidad.confirmar();
+            return lst;
+        }
+    }
+
     /**
      * Obtiene el ID de un deporte a partir de su nombre. Si el deporte no existe, lo inserta en la base de datos.
      *
@@ -51,15 +56,13 @@ public class DaoDeporte {
      */
     public static int getDeporteId(String nombreDeporte) {
         Integer deporteId = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
             // Intentar obtener el ID del deporte por nombre
-            String hql = "SELECT d.id FROM ModeloDeporte d WHERE d.nombre = :nombreDeporte";
-            Query<Integer> query = session.createQuery(hql, Integer.class);
-            query.setParameter("nombreDeporte", nombreDeporte);
+            Query<Integer> query = session.createNamedQuery("Deporte.idPorNombre", Integer.class);
+            query.setParameter("nombre", nombreDeporte);
             deporteId = query.uniqueResult();
 
             // Si no existe, se inserta el nuevo deporte
@@ -68,11 +71,11 @@ public class DaoDeporte {
                 deporteId = (Integer) session.save(deporte);
             }
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        CacheIds.DEPORTES.invalidar(nombreDeporte);
 
         return (deporteId != null) ? deporteId : -1;
     }
@@ -83,20 +86,18 @@ public class DaoDeporte {
      * @param nombreDeporte El nombre del deporte.
      */
     public static void aniadirDeporte(String nombreDeporte) {
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
             // Crear el nuevo deporte y guardarlo
             ModeloDeporte deporte = new ModeloDeporte(nombreDeporte);
             session.save(deporte);
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        CacheIds.DEPORTES.invalidar(nombreDeporte);
     }
 
     /**
@@ -108,12 +109,9 @@ public class DaoDeporte {
     public static Integer conseguirIdDeporte(String nombre) {
         Integer deporteId = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            // Consulta para obtener el ID del deporte por su nombre
-            String hql = "SELECT d.id FROM ModeloDeporte d WHERE d.nombre = :nombre";
-            Query<Integer> query = session.createQuery(hql, Integer.class);
-            query.setParameter("nombre", nombre);
-            deporteId = query.uniqueResult();
+        try {
+            // Solo se consulta la base de datos si el nombre no está en la caché de IDs
+            deporteId = CacheIds.DEPORTES.buscar(nombre, () -> consultarIdDeporte(nombre));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -121,6 +119,19 @@ public class DaoDeporte {
         return deporteId;
     }
 
+    private static Integer consultarIdDeporte(String nombre) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            // Consulta para obtener el ID del deporte por su nombre
+            Query<Integer> query = session.createNamedQuery("Deporte.idPorNombre", Integer.class);
+            query.setParameter("nombre", nombre);
+            Integer id = query.uniqueResult();
+
+            unidad.confirmar();
+            return id;
+        }
+    }
+
     /**
      * Crea un objeto `ModeloDeporte` a partir del ID de un deporte.
      *
@@ -131,9 +142,12 @@ public class DaoDeporte {
     public static ModeloDeporte createDeporteModel(int id) {
         ModeloDeporte deporte = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
             // Obtener el deporte desde la base de datos por su ID
             deporte = session.get(ModeloDeporte.class, id);
+
+            unidad.confirmar();
         } catch (Exception e) {
             e.printStackTrace();
         }
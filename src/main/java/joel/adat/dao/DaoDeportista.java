@@ -2,12 +2,18 @@ package joel.adat.dao;
 
 import joel.adat.model.ModeloDeportista;
 import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Clase que gestiona las operaciones relacionadas con la tabla Deportista en la base de datos usando Hibernate.
@@ -15,6 +21,11 @@ import java.util.List;
  */
 public class DaoDeportista {
 
+    // Deportistas por página en las búsquedas por nombre
+    public static final int TAM_PAGINA = Integer.getInteger("olimpiadas.deportistas.tamPagina", 50);
+    // Filas que trae cada viaje del cursor en las exportaciones
+    static final int TAM_FETCH_EXPORTACION = Integer.getInteger("olimpiadas.exportacion.tamFetch", 5000);
+
     /**
      * Crea un objeto `ModeloDeportista` a partir del ID de un deportista.
      *
@@ -24,17 +35,15 @@ public class DaoDeportista {
      */
     public static ModeloDeportista createDeportistaModel(String id) {
         ModeloDeportista deportista = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
             // Obtener el deportista desde la base de datos por su ID
             deportista = session.get(ModeloDeportista.class, id);
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
@@ -42,34 +51,141 @@ public class DaoDeportista {
     }
 
     /**
-     * Encuentra deportistas cuyo nombre coincida parcialmente con la cadena proporcionada.
+     * Obtiene una lista de deportistas a partir de sus IDs, con una consulta por cada bloque de IDs.
+     *
+     * @param lstId Los IDs de los deportistas.
+     * @return Los deportistas correspondientes a los IDs dados, en el mismo orden.
+     */
+    public static List<ModeloDeportista> listaModelosPorId(Collection<Integer> lstId) {
+        List<ModeloDeportista> lst = new ArrayList<>();
+
+        try {
+            lst = LecturaPorIds.cargar(ModeloDeportista.class, lstId);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return lst;
+    }
+
+    /**
+     * Encuentra deportistas cuyo nombre coincida parcialmente con la cadena proporcionada. Devuelve todas
+     * las coincidencias de una vez; para cadenas cortas, que pueden coincidir con casi toda la tabla, usa
+     * la versión por páginas o {@link #recorrerDeportistasPorNombre(String, Consumer)}.
      *
      * @param cadena La cadena con la que se busca coincidencias en el nombre del deportista.
      * @return Una lista de objetos `ModeloDeportista` que coinciden con el nombre proporcionado.
      */
     public static List<ModeloDeportista> findDeportistaName(String cadena) {
         List<ModeloDeportista> lst = new ArrayList<>();
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
-            // HQL para obtener los deportistas que coinciden parcialmente con el nombre
-            String hql = "FROM ModeloDeportista d WHERE d.nombre LIKE :cadena";
-            Query<ModeloDeportista> query = session.createQuery(hql, ModeloDeportista.class);
+            // Consulta con nombre para obtener los deportistas que coinciden parcialmente con el nombre
+            Query<ModeloDeportista> query = session.createNamedQuery("Deportista.porNombreParcial", ModeloDeportista.class);
             query.setParameter("cadena", "%" + cadena + "%");
 
             lst = query.getResultList();
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
         return lst;
     }
 
+    /**
+     * Obtiene una página de los deportistas cuyo nombre contiene la cadena, de {@link #TAM_PAGINA}
+     * deportistas.
+     *
+     * @param cadena La cadena con la que se busca coincidencias en el nombre del deportista.
+     * @param despuesDe El ID del último deportista de la página anterior, o 0 para la primera.
+     * @return Los deportistas de la página, ordenados por ID; si hay menos de {@link #TAM_PAGINA}, es la última.
+     */
+    public static List<ModeloDeportista> findDeportistaName(String cadena, int despuesDe) {
+        return findDeportistaName(cadena, despuesDe, TAM_PAGINA);
+    }
+
+    /**
+     * Obtiene una página de los deportistas cuyo nombre contiene la cadena.
+     *
+     * <p>La página siguiente se pide a partir del ID del último deportista recibido en lugar de con un
+     * desplazamiento, así que la base de datos recorre la clave primaria desde ese ID y se detiene al
+     * completar la página: el coste depende del tamaño de la página y no de cuántas se hayan leído antes.</p>
+     *
+     * @param cadena La cadena con la que se busca coincidencias en el nombre del deportista.
+     * @param despuesDe El ID del último deportista de la página anterior, o 0 para la primera.
+     * @param tamPagina El número máximo de deportistas de la página.
+     * @return Los deportistas de la página, ordenados por ID.
+     */
+    public static List<ModeloDeportista> findDeportistaName(String cadena, int despuesDe, int tamPagina) {
+        List<ModeloDeportista> lst = new ArrayList<>();
+
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+
+            Query<ModeloDeportista> query = session.createNamedQuery("Deportista.porNombreParcialDesde",
+                    ModeloDeportista.class);
+            query.setParameter("cadena", "%" + cadena + "%");
+            query.setParameter("despuesDe", despuesDe);
+            query.setMaxResults(tamPagina);
+
+            lst = query.getResultList();
+
+            unidad.confirmar();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return lst;
+    }
+
+    /**
+     * Recorre todos los deportistas cuyo nombre contiene la cadena sin tenerlos todos en memoria, para
+     * exportaciones.
+     *
+     * <p>Usa una sesión sin estado propia, que no guarda las entidades leídas, y un cursor que trae las
+     * filas de {@code olimpiadas.exportacion.tamFetch} en {@code olimpiadas.exportacion.tamFetch} (5000 por
+     * defecto). Como no se une a la unidad de trabajo del hilo, no ve sus cambios sin confirmar.</p>
+     *
+     * <p>Si la consulta o la acción fallan, la excepción se propaga: quien exporta tiene que saber que el
+     * resultado está incompleto.</p>
+     *
+     * @param cadena La cadena con la que se busca coincidencias en el nombre del deportista.
+     * @param accion Lo que se hace con cada deportista, en orden de ID.
+     * @return El número de deportistas recorridos.
+     */
+    public static long recorrerDeportistasPorNombre(String cadena, Consumer<ModeloDeportista> accion) {
+        long total = 0;
+
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                Query<ModeloDeportista> query = session.createNamedQuery("Deportista.porNombreParcialDesde",
+                        ModeloDeportista.class);
+                query.setParameter("cadena", "%" + cadena + "%");
+                query.setParameter("despuesDe", 0);
+                query.setFetchSize(TAM_FETCH_EXPORTACION);
+
+                try (ScrollableResults<ModeloDeportista> filas = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (filas.next()) {
+                        accion.accept(filas.get());
+                        total++;
+                    }
+                }
+
+                transaction.commit();
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+        }
+
+        return total;
+    }
+
     /**
      * Inserta un nuevo deportista en la base de datos.
      *
@@ -78,20 +194,18 @@ public class DaoDeportista {
      * @param edad La edad del deportista.
      */
     public static void insertDeportista(String nombre, String sexo, int edad) {
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
             // Crear el nuevo deportista
             ModeloDeportista deportista = new ModeloDeportista(nombre, sexo.charAt(0), 0, 0); // Edad no está en la clase ModeloDeportista
             session.save(deportista);
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        CacheIds.DEPORTISTAS.invalidar(CacheIds.clave(nombre, sexo.charAt(0), 0f, 0));
     }
 
     /**
@@ -105,29 +219,34 @@ public class DaoDeportista {
      */
     public static String conseguirIdDeportista(String nombreDeportista, char sexo, float peso, int altura) {
         String deportistaId = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try {
+            // Solo se consulta la base de datos si el deportista no está en la caché de IDs
+            Integer id = CacheIds.DEPORTISTAS.buscar(CacheIds.clave(nombreDeportista, sexo, peso, altura),
+                    () -> consultarIdDeportista(nombreDeportista, sexo, peso, altura));
+            deportistaId = (id != null) ? String.valueOf(id) : null;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return deportistaId;
+    }
+
+    private static Integer consultarIdDeportista(String nombreDeportista, char sexo, float peso, int altura) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
-            // HQL para obtener el ID del deportista con los datos proporcionados
-            String hql = "SELECT d.id FROM ModeloDeportista d WHERE d.nombre = :nombre AND d.sexo = :sexo " +
-                    "AND d.peso = :peso AND d.altura = :altura";
-            Query<String> query = session.createQuery(hql, String.class);
+            // Consulta con nombre para obtener el ID del deportista con los datos proporcionados
+            Query<Integer> query = session.createNamedQuery("Deportista.idPorDatos", Integer.class);
             query.setParameter("nombre", nombreDeportista);
             query.setParameter("sexo", sexo);
             query.setParameter("peso", peso);
             query.setParameter("altura", altura);
+            Integer id = query.uniqueResult();
 
-            deportistaId = query.uniqueResult();
-
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
-            e.printStackTrace();
+            unidad.confirmar();
+            return id;
         }
-
-        return deportistaId;
     }
 
     /**
@@ -139,19 +258,18 @@ public class DaoDeportista {
      * @param altura La altura del deportista.
      */
     public static void aniadirDeportista(String nombreDeportista, char sexo, int peso, int altura) {
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
             // Crear el nuevo deportista
-            ModeloDeportista deportista = new ModeloDeportista(nombreDeportista, sexo, peso, altura);
+            ModeloDeportista deportista = new ModeloDeportista(nombreDeportista, sexo, altura, peso);
             session.save(deportista);
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        // La misma clave que usa conseguirIdDeportista, que recibe el peso como float
+        CacheIds.DEPORTISTAS.invalidar(CacheIds.clave(nombreDeportista, sexo, (float) peso, altura));
     }
 }
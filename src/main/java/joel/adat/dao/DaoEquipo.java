@@ -1,11 +1,12 @@
 package joel.adat.dao;
 
-import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 import joel.adat.model.ModeloEquipo;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,10 +22,8 @@ public class DaoEquipo {
      * @param iniciales Las iniciales del equipo.
      */
     public static void aniadirEquipo(String nombre, String iniciales) {
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
             // Crear un nuevo modelo de equipo
             ModeloEquipo equipo = new ModeloEquipo(nombre, iniciales);
@@ -32,12 +31,11 @@ public class DaoEquipo {
             // Guardar el equipo en la base de datos
             session.save(equipo);
 
-            // Confirmar la transacción
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        CacheIds.EQUIPOS.invalidar(CacheIds.clave(nombre, iniciales));
     }
 
     /**
@@ -49,28 +47,33 @@ public class DaoEquipo {
      */
     public static Integer conseguirIdEquipo(String nombre, String iniciales) {
         Integer idEquipo = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try {
+            // Solo se consulta la base de datos si el equipo no está en la caché de IDs
+            idEquipo = CacheIds.EQUIPOS.buscar(CacheIds.clave(nombre, iniciales),
+                    () -> consultarIdEquipo(nombre, iniciales));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            // HQL para obtener el ID del equipo por nombre e iniciales
-            String hql = "SELECT e.idEquipo FROM ModeloEquipo e WHERE e.nombreEquipo = :nombre AND e.iniciales = :iniciales";
-            Query<Integer> query = session.createQuery(hql, Integer.class);
+        return idEquipo;
+    }
+
+    private static Integer consultarIdEquipo(String nombre, String iniciales) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+
+            // Consulta con nombre para obtener el ID del equipo por nombre e iniciales
+            Query<Integer> query = session.createNamedQuery("Equipo.idPorNombreEIniciales", Integer.class);
             query.setParameter("nombre", nombre);
             query.setParameter("iniciales", iniciales);
 
             // Obtener el resultado
-            idEquipo = query.uniqueResult();
+            Integer id = query.uniqueResult();
 
-            // Confirmar la transacción
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
-            e.printStackTrace();
+            unidad.confirmar();
+            return id;
         }
-
-        return idEquipo;
     }
 
     /**
@@ -81,24 +84,40 @@ public class DaoEquipo {
      */
     public static ModeloEquipo obtenerEquipoPorId(int id) {
         ModeloEquipo equipo = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
             // Buscar el equipo por ID utilizando Hibernate
             equipo = session.get(ModeloEquipo.class, id);
 
-            // Confirmar la transacción
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
         return equipo;
     }
 
+    /**
+     * Obtiene una lista de equipos a partir de sus IDs, con una consulta por cada bloque de IDs que no
+     * estén ya en la caché.
+     *
+     * @param lstId Los IDs de los equipos.
+     * @return Los equipos correspondientes a los IDs dados, en el mismo orden.
+     */
+    public static List<ModeloEquipo> listaModelosPorId(Collection<Integer> lstId) {
+        List<ModeloEquipo> lst = new ArrayList<>();
+
+        try {
+            lst = LecturaPorIds.cargar(ModeloEquipo.class, lstId);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return lst;
+    }
+
     /**
      * Obtiene todos los equipos de la base de datos.
      *
@@ -106,21 +125,17 @@ public class DaoEquipo {
      */
     public static List<ModeloEquipo> obtenerTodosLosEquipos() {
         List<ModeloEquipo> equipos = null;
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
-            // Consulta HQL para obtener todos los equipos
-            String hql = "FROM ModeloEquipo";
-            Query<ModeloEquipo> query = session.createQuery(hql, ModeloEquipo.class);
+            // Consulta con nombre para obtener todos los equipos
+            Query<ModeloEquipo> query = session.createNamedQuery("Equipo.todos", ModeloEquipo.class);
 
             equipos = query.list();
 
-            // Confirmar la transacción
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
@@ -3,13 +3,15 @@ package joel.adat.dao;
 import joel.adat.model.ModeloDeporte;
 import joel.adat.model.ModeloEvento;
 import joel.adat.model.ModeloOlimpiada;
-import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
 import org.hibernate.query.Query;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Clase que maneja las operaciones relacionadas con la tabla de Eventos en la base de datos usando Hibernate.
@@ -17,6 +19,9 @@ import java.util.List;
  */
 public class DaoEvento {
 
+    // Grafo de las lecturas que devuelven eventos para mostrarlos: trae su deporte y su olimpiada
+    static final String GRAFO_EVENTO = "Evento.conDeporteYOlimpiada";
+
     /**
      * Inserta un nuevo evento en la base de datos.
      *
@@ -25,25 +30,25 @@ public class DaoEvento {
      * @param idDeporte El ID del deporte asociado al evento.
      */
     public static void aniadirEvento(String nombreEvento, int idOlimpiada, int idDeporte) {
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
-            // Crear el nuevo evento
-            ModeloDeporte deporte = session.get(ModeloDeporte.class, idDeporte);
-            ModeloOlimpiada olimpiada = session.get(ModeloOlimpiada.class, idOlimpiada);
+            // Crear el nuevo evento; solo hacen falta las claves ajenas, así que no se cargan las filas
+            ModeloDeporte deporte = session.getReference(ModeloDeporte.class, idDeporte);
+            ModeloOlimpiada olimpiada = session.getReference(ModeloOlimpiada.class, idOlimpiada);
 
             ModeloEvento evento = new ModeloEvento(nombreEvento, deporte, olimpiada);
 
             // Guardar el evento en la base de datos
             session.save(evento);
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
+        CacheIds.EVENTOS.invalidar(CacheIds.clave(nombreEvento, idOlimpiada, idDeporte));
+        CacheListas.EVENTOS_POR_DEPORTE_Y_OLIMPIADA.invalidar(CacheIds.clave(idDeporte, idOlimpiada));
+        CacheListas.DEPORTES_POR_OLIMPIADA.invalidar(String.valueOf(idOlimpiada));
     }
 
     /**
@@ -55,52 +60,47 @@ public class DaoEvento {
      */
     public static List<ModeloEvento> crearListaModelosPorDeporteYOlimpiada(int idDeporte, int idOlimpiada) {
         List<ModeloEvento> lst = new ArrayList<>();
-        Transaction transaction = null;
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            // Crear la consulta HQL para obtener eventos según deporte y olimpiada
-            String hql = "FROM ModeloEvento e WHERE e.deporte.id = :idDeporte AND e.olimpiada.id = :idOlimpiada";
-            Query<ModeloEvento> query = session.createQuery(hql, ModeloEvento.class);
-            query.setParameter("idDeporte", idDeporte);
-            query.setParameter("idOlimpiada", idOlimpiada);
-
-            lst = query.getResultList();
 
-            transaction.commit();
+        try {
+            // El listado se guarda por deporte y olimpiada hasta que aniadirEvento le añade un evento
+            lst = CacheListas.EVENTOS_POR_DEPORTE_Y_OLIMPIADA.buscar(CacheIds.clave(idDeporte, idOlimpiada),
+                    () -> consultarModelosPorDeporteYOlimpiada(idDeporte, idOlimpiada));
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
         return lst;
     }
 
+    private static List<ModeloEvento> consultarModelosPorDeporteYOlimpiada(int idDeporte, int idOlimpiada) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+
+            // Consulta con nombre para obtener eventos según deporte y olimpiada
+            Query<ModeloEvento> query = session.createNamedQuery("Evento.porDeporteYOlimpiada", ModeloEvento.class);
+            query.applyFetchGraph(session.getEntityGraph(GRAFO_EVENTO));
+            query.setParameter("idDeporte", idDeporte);
+            query.setParameter("idOlimpiada", idOlimpiada);
+            List<ModeloEvento> lst = query.getResultList();
+
+            unidad.confirmar();
+            return lst;
+        }
+    }
+
     /**
-     * Obtiene una lista de eventos a partir de una lista de IDs de eventos.
+     * Obtiene una lista de eventos a partir de una lista de IDs de eventos, con una consulta por cada
+     * bloque de IDs en lugar de una por evento.
      *
      * @param lstId Una lista de IDs de eventos.
-     * @return Una lista de objetos `ModeloEvento` correspondientes a los IDs dados.
+     * @return Una lista de objetos `ModeloEvento` correspondientes a los IDs dados, en el mismo orden.
      */
-    public static List<ModeloEvento> listaModelosPorId(List<String> lstId) {
+    public static List<ModeloEvento> listaModelosPorId(Collection<Integer> lstId) {
         List<ModeloEvento> lst = new ArrayList<>();
-        Transaction transaction = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
-
-            // Itera por la lista de IDs y obtiene los eventos
-            for (String id : lstId) {
-                ModeloEvento evento = session.get(ModeloEvento.class, Integer.parseInt(id));
-                if (evento != null) {
-                    lst.add(evento);
-                }
-            }
-
-            transaction.commit();
+        try {
+            lst = LecturaPorIds.cargar(ModeloEvento.class, lstId, GRAFO_EVENTO);
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
@@ -114,17 +114,16 @@ public class DaoEvento {
      * @return Un objeto `ModeloEvento` correspondiente al evento con el ID proporcionado.
      */
     public static ModeloEvento createById(int id) {
-        Transaction transaction = null;
         ModeloEvento evento = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
-            evento = session.get(ModeloEvento.class, id);
+            evento = session.find(ModeloEvento.class, id,
+                    Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph(GRAFO_EVENTO)));
 
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
             e.printStackTrace();
         }
 
@@ -140,27 +139,32 @@ public class DaoEvento {
      * @return El ID del evento si existe, o null si no se encuentra.
      */
     public static String conseguirIdEvento(String nombreEvento, int idOlimpiada, int idDeporte) {
-        Transaction transaction = null;
         String idEvento = null;
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            transaction = session.beginTransaction();
+        try {
+            // Solo se consulta la base de datos si el evento no está en la caché de IDs
+            Integer id = CacheIds.EVENTOS.buscar(CacheIds.clave(nombreEvento, idOlimpiada, idDeporte),
+                    () -> consultarIdEvento(nombreEvento, idOlimpiada, idDeporte));
+            idEvento = (id != null) ? String.valueOf(id) : null;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return idEvento;
+    }
+
+    private static Integer consultarIdEvento(String nombreEvento, int idOlimpiada, int idDeporte) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
 
-            String hql = "SELECT e.id FROM ModeloEvento e WHERE e.nombre = :nombreEvento " +
-                    "AND e.olimpiada.id = :idOlimpiada AND e.deporte.id = :idDeporte";
-            Query<String> query = session.createQuery(hql, String.class);
+            Query<Integer> query = session.createNamedQuery("Evento.idPorNombre", Integer.class);
             query.setParameter("nombreEvento", nombreEvento);
             query.setParameter("idOlimpiada", idOlimpiada);
             query.setParameter("idDeporte", idDeporte);
+            Integer id = query.uniqueResult();
 
-            idEvento = query.uniqueResult();
-
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) transaction.rollback();
-            e.printStackTrace();
+            unidad.confirmar();
+            return id;
         }
-
-        return idEvento;
     }
 }
@@ -2,91 +2,98 @@ package joel.adat.dao;
 
 import joel.adat.model.ModeloOlimpiada;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.hibernate.query.Query;
-import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class DaoOlimpiada {
 
     // Insert a new Olimpiada
     public static void aniadirOlimpiada(String nombre, int anio, String temporada, String ciudad) {
-        Session session = HibernateUtil.getSessionFactory().openSession();
-        Transaction transaction = null;
-
-        try {
-            transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
             ModeloOlimpiada olimpiada = new ModeloOlimpiada();
             olimpiada.setNombreOlimpiada(nombre);
             olimpiada.setAnio(anio);
             olimpiada.setTemporada(temporada);
             olimpiada.setCiudad(ciudad);
             session.save(olimpiada);
-            transaction.commit();
+            unidad.confirmar();
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
             e.printStackTrace();
-        } finally {
-            session.close();
         }
+        CacheIds.OLIMPIADAS.invalidar(CacheIds.clave(nombre, anio, temporada, ciudad));
+        CacheListas.OLIMPIADAS_POR_TEMPORADA.invalidar(temporada);
     }
 
     // Get a list of Olimpiadas by season
     public static ArrayList<ModeloOlimpiada> listaOlimpiadasPorTemporada(int temp) {
-        Session session = HibernateUtil.getSessionFactory().openSession();
         ArrayList<ModeloOlimpiada> lst = new ArrayList<>();
         String temporada = (temp == 2) ? "Summer" : "Winter";
 
         try {
-            String hql = "FROM ModeloOlimpiada WHERE temporada = :temporada";
-            Query<ModeloOlimpiada> query = session.createQuery(hql, ModeloOlimpiada.class);
-            query.setParameter("temporada", temporada);
-            lst = (ArrayList<ModeloOlimpiada>) query.list();
+            // El listado se guarda por temporada hasta que aniadirOlimpiada le añade una olimpiada
+            lst = CacheListas.OLIMPIADAS_POR_TEMPORADA.buscar(temporada, () -> consultarOlimpiadasPorTemporada(temporada));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            session.close();
         }
 
         return lst;
     }
 
+    private static List<ModeloOlimpiada> consultarOlimpiadasPorTemporada(String temporada) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<ModeloOlimpiada> query = session.createNamedQuery("Olimpiada.porTemporada", ModeloOlimpiada.class);
+            query.setParameter("temporada", temporada);
+            List<ModeloOlimpiada> lst = query.list();
+            unidad.confirmar();
+            return lst;
+        }
+    }
+
     // Get the ID of an Olimpiada by its details
     public static String conseguirIdOlimpiada(String nombre, int anio, String temporada, String ciudad) {
-        Session session = HibernateUtil.getSessionFactory().openSession();
         String id = null;
 
         try {
-            String hql = "SELECT idOlimpiada FROM ModeloOlimpiada WHERE nombre = :nombre AND anio = :anio AND temporada = :temporada AND ciudad = :ciudad";
-            Query<Integer> query = session.createQuery(hql, Integer.class);
-            query.setParameter("nombre", nombre);
-            query.setParameter("anio", anio);
-            query.setParameter("temporada", temporada);
-            query.setParameter("ciudad", ciudad);
-            id = String.valueOf(query.uniqueResult());
+            // Solo se consulta la base de datos si la olimpiada no está en la caché de IDs
+            Integer idOlimpiada = CacheIds.OLIMPIADAS.buscar(CacheIds.clave(nombre, anio, temporada, ciudad),
+                    () -> consultarIdOlimpiada(nombre, anio, temporada, ciudad));
+            id = (idOlimpiada != null) ? String.valueOf(idOlimpiada) : null;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            session.close();
         }
 
         return id;
     }
 
+    private static Integer consultarIdOlimpiada(String nombre, int anio, String temporada, String ciudad) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<Integer> query = session.createNamedQuery("Olimpiada.idPorDatos", Integer.class);
+            query.setParameter("nombre", nombre);
+            query.setParameter("anio", anio);
+            query.setParameter("temporada", temporada);
+            query.setParameter("ciudad", ciudad);
+            Integer id = query.uniqueResult();
+            unidad.confirmar();
+            return id;
+        }
+    }
+
     // Get a single Olimpiada by ID
     public static ModeloOlimpiada createOlimpiadaModel(int id) {
-        Session session = HibernateUtil.getSessionFactory().openSession();
         ModeloOlimpiada olimpiada = null;
 
-        try {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
             olimpiada = session.get(ModeloOlimpiada.class, id);
+            unidad.confirmar();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            session.close();
         }
 
         return olimpiada;
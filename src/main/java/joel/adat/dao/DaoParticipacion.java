@@ -1,12 +1,13 @@
 package joel.adat.dao;
 
-import joel.adat.bbdd.HibernateUtil;
+import joel.adat.bbdd.UnidadDeTrabajo;
 import joel.adat.model.ModeloDeportista;
 import joel.adat.model.ModeloEquipo;
 import joel.adat.model.ModeloEvento;
 import joel.adat.model.ModeloParticipacion;
+import joel.adat.model.ParticipanteEvento;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.query.MutationQuery;
 import org.hibernate.query.Query;
 
 import java.util.ArrayList;
@@ -22,12 +23,15 @@ public class DaoParticipacion {
      * @return true si existe una participación, false si no existe.
      */
     public static boolean existeIdParticipacion(int idDeportista, int idEvento) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "SELECT 1 FROM ModeloParticipacion p WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<Integer> query = session.createNamedQuery("Participacion.idPorDeportistaYEvento", Integer.class);
             query.setParameter("idDeportista", idDeportista);
             query.setParameter("idEvento", idEvento);
-            return query.uniqueResult() != null;
+            query.setMaxResults(1);
+            boolean existe = query.uniqueResult() != null;
+            unidad.confirmar();
+            return existe;
         }
     }
 
@@ -38,14 +42,13 @@ public class DaoParticipacion {
      * @param idEvento El ID del evento.
      */
     public static void eliminarParticipacion(int idDeportista, int idEvento) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction transaction = session.beginTransaction();
-            String hql = "DELETE FROM ModeloParticipacion p WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
+            MutationQuery query = session.createNamedMutationQuery("Participacion.eliminar");
             query.setParameter("idDeportista", idDeportista);
             query.setParameter("idEvento", idEvento);
             query.executeUpdate();
-            transaction.commit();
+            unidad.confirmar();
         }
     }
 
@@ -57,15 +60,14 @@ public class DaoParticipacion {
      * @param nuevaMedalla La nueva medalla obtenida.
      */
     public static void editMedal(int idDeportista, int idEvento, String nuevaMedalla) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction transaction = session.beginTransaction();
-            String hql = "UPDATE ModeloParticipacion p SET p.medalla = :medalla WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
+            MutationQuery query = session.createNamedMutationQuery("Participacion.editarMedalla");
             query.setParameter("medalla", nuevaMedalla);
             query.setParameter("idDeportista", idDeportista);
             query.setParameter("idEvento", idEvento);
             query.executeUpdate();
-            transaction.commit();
+            unidad.confirmar();
         }
     }
 
@@ -76,11 +78,32 @@ public class DaoParticipacion {
      * @return Una lista con los IDs de los deportistas.
      */
     public static List<Integer> darIdDeportista(int idEvento) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "SELECT p.deportista.idDeportista FROM ModeloParticipacion p WHERE p.evento.idEvento = :idEvento";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<Integer> query = session.createNamedQuery("Participacion.idsDeportistasPorEvento", Integer.class);
             query.setParameter("idEvento", idEvento);
-            return query.list();
+            List<Integer> ids = query.list();
+            unidad.confirmar();
+            return ids;
+        }
+    }
+
+    /**
+     * Obtiene los participantes de un evento con una sola consulta que devuelve directamente los datos que
+     * se muestran, sin cargar las entidades.
+     *
+     * @param idEvento El ID del evento.
+     * @return Los participantes del evento, ordenados por nombre.
+     */
+    public static List<ParticipanteEvento> participantesEvento(int idEvento) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<ParticipanteEvento> query = session.createNamedQuery("Participacion.participantesEvento",
+                    ParticipanteEvento.class);
+            query.setParameter("idEvento", idEvento);
+            List<ParticipanteEvento> participantes = query.list();
+            unidad.confirmar();
+            return participantes;
         }
     }
 
@@ -92,12 +115,16 @@ public class DaoParticipacion {
      * @return Un objeto ModeloParticipacion que representa la participación, o null si no existe.
      */
     public static ModeloParticipacion crearModeloParticipacion(int idDeportista, int idEvento) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "FROM ModeloParticipacion p WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<ModeloParticipacion> query = session.createNamedQuery("Participacion.porDeportistaYEvento",
+                    ModeloParticipacion.class);
+            query.applyFetchGraph(session.getEntityGraph("Participacion.completa"));
             query.setParameter("idDeportista", idDeportista);
             query.setParameter("idEvento", idEvento);
-            return (ModeloParticipacion) query.uniqueResult();
+            ModeloParticipacion participacion = query.uniqueResult();
+            unidad.confirmar();
+            return participacion;
         }
     }
 
@@ -108,11 +135,32 @@ public class DaoParticipacion {
      * @return Una lista con los IDs de los eventos en los que el deportista ha participado.
      */
     public static List<Integer> getIdEvento(int idDeportista) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String hql = "SELECT p.evento.idEvento FROM ModeloParticipacion p WHERE p.deportista.idDeportista = :idDeportista";
-            Query query = session.createQuery(hql);
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<Integer> query = session.createNamedQuery("Participacion.idsEventosPorDeportista", Integer.class);
+            query.setParameter("idDeportista", idDeportista);
+            List<Integer> ids = query.list();
+            unidad.confirmar();
+            return ids;
+        }
+    }
+
+    /**
+     * Obtiene todas las participaciones de un deportista con una sola consulta, que trae también el
+     * deportista, el equipo, el evento y su deporte y olimpiada.
+     *
+     * @param idDeportista El ID del deportista.
+     * @return Las participaciones del deportista, ordenadas por olimpiada y evento.
+     */
+    public static List<ModeloParticipacion> historialDeportista(int idDeportista) {
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+            Session session = unidad.getSession();
+            Query<ModeloParticipacion> query = session.createNamedQuery("Participacion.historialDeportista",
+                    ModeloParticipacion.class);
             query.setParameter("idDeportista", idDeportista);
-            return query.list();
+            List<ModeloParticipacion> historial = query.list();
+            unidad.confirmar();
+            return historial;
         }
     }
 
@@ -126,16 +174,17 @@ public class DaoParticipacion {
      * @param medalla La medalla obtenida en el evento.
      */
     public static void aniadirParticipacion(int idDeportista, int idEvento, int idEquipo, int edad, String medalla) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction transaction = session.beginTransaction();
+        try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrir()) {
+            Session session = unidad.getSession();
 
-            ModeloDeportista deportista = session.get(ModeloDeportista.class, idDeportista);
-            ModeloEvento evento = session.get(ModeloEvento.class, idEvento);
-            ModeloEquipo equipo = session.get(ModeloEquipo.class, idEquipo);
+            // Solo hacen falta las claves ajenas, así que no se cargan las filas relacionadas
+            ModeloDeportista deportista = session.getReference(ModeloDeportista.class, idDeportista);
+            ModeloEvento evento = session.getReference(ModeloEvento.class, idEvento);
+            ModeloEquipo equipo = session.getReference(ModeloEquipo.class, idEquipo);
 
             ModeloParticipacion participacion = new ModeloParticipacion(deportista, evento, equipo, edad, medalla);
             session.save(participacion);
-            transaction.commit();
+            unidad.confirmar();
         }
     }
 }
@@ -0,0 +1,471 @@
+package joel.adat.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Clase que mantiene en memoria las claves naturales de Deporte, Equipo, Olimpiada, Evento y Deportista
+ * junto con sus IDs, para que la carga masiva no tenga que consultar la base de datos por cada fila.
+ *
+ * <p>Los diccionarios se cargan una sola vez con {@link #cargar(Connection)} y los valores nuevos se
+ * insertan con sentencias de varias filas con {@link #resolverLote(Connection, List)}. Las cargas que
+ * solo tocan unas pocas filas usan en su lugar {@link #cargarLote(Connection, List)} antes de cada lote,
+ * que trae solo las claves que el lote necesita.</p>
+ *
+ * <p>Cuando un lote se confirma en la base de datos hay que llamar a {@link #confirmarLote()}; si se
+ * deshace, {@link #deshacerLote()} elimina de los diccionarios los IDs que ya no existen.</p>
+ *
+ * <p>La clase no es segura entre hilos: quien la comparta debe sincronizar sobre la propia instancia.</p>
+ */
+public class DiccionarioDimensiones {
+
+	// Filas de cada sentencia INSERT de varias filas
+	static final int FILAS_POR_SENTENCIA = 500;
+
+	private final Map<String, Integer> deportes = new HashMap<>();
+	private final Map<String, Integer> equipos = new HashMap<>();
+	private final Map<String, Integer> olimpiadas = new HashMap<>();
+	private final Map<String, Integer> eventos = new HashMap<>();
+	private final Map<String, Integer> deportistas = new HashMap<>();
+	private final Set<Long> participaciones = new HashSet<>();
+
+	// Entradas añadidas desde el último lote confirmado, para poder deshacerlas si el lote falla
+	private final List<Map<String, Integer>> mapasPendientes = new ArrayList<>();
+	private final List<String> clavesPendientes = new ArrayList<>();
+	private final List<Long> participacionesPendientes = new ArrayList<>();
+
+	/**
+	 * Carga en memoria todas las claves naturales que ya existen en la base de datos.
+	 *
+	 * @param conexion La conexión JDBC a usar.
+	 * @throws SQLException Si falla alguna de las consultas.
+	 */
+	public void cargar(Connection conexion) throws SQLException {
+		try (Statement st = conexion.createStatement()) {
+			try (ResultSet rs = st.executeQuery("SELECT id_deporte, nombre FROM Deporte")) {
+				while (rs.next()) {
+					deportes.put(rs.getString(2), rs.getInt(1));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT id_equipo, nombre, iniciales FROM Equipo")) {
+				while (rs.next()) {
+					equipos.put(rs.getString(2) + "|" + rs.getString(3), rs.getInt(1));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT id_olimpiada, nombre, anio, temporada, ciudad FROM Olimpiada")) {
+				while (rs.next()) {
+					olimpiadas.put(rs.getString(2) + "|" + rs.getInt(3) + "|" + rs.getString(4) + "|" + rs.getString(5),
+							rs.getInt(1));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT id_evento, nombre, id_olimpiada, id_deporte FROM Evento")) {
+				while (rs.next()) {
+					eventos.put(claveEvento(rs.getString(2), rs.getInt(3), rs.getInt(4)), rs.getInt(1));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT id_deportista, nombre, sexo, altura, peso FROM Deportista")) {
+				while (rs.next()) {
+					deportistas.put(rs.getString(2) + "|" + rs.getString(3).charAt(0) + "|" + rs.getInt(4) + "|"
+							+ rs.getInt(5), rs.getInt(1));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT id_deportista, id_evento FROM Participacion")) {
+				while (rs.next()) {
+					participaciones.add(claveParticipacion(rs.getInt(1), rs.getInt(2)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Carga en memoria solo las claves que usa el lote y que todavía no están en los diccionarios, con
+	 * consultas {@code IN} de hasta {@link #FILAS_POR_SENTENCIA} claves. Las que no aparecen no existen y
+	 * {@link #resolverLote(Connection, List)} las insertará.
+	 *
+	 * @param conexion La conexión JDBC a usar.
+	 * @param lote Las filas leídas del CSV.
+	 * @throws SQLException Si falla alguna de las consultas.
+	 */
+	public void cargarLote(Connection conexion, List<FilaCsv> lote) throws SQLException {
+		Map<String, FilaCsv> deportesLote = new LinkedHashMap<>();
+		Map<String, FilaCsv> equiposLote = new LinkedHashMap<>();
+		Map<String, FilaCsv> olimpiadasLote = new LinkedHashMap<>();
+		Map<String, FilaCsv> deportistasLote = new LinkedHashMap<>();
+		for (FilaCsv fila : lote) {
+			if (!deportes.containsKey(fila.getDeporte())) deportesLote.putIfAbsent(fila.getDeporte(), fila);
+			if (!equipos.containsKey(fila.claveEquipo())) equiposLote.putIfAbsent(fila.claveEquipo(), fila);
+			if (!olimpiadas.containsKey(fila.claveOlimpiada())) olimpiadasLote.putIfAbsent(fila.claveOlimpiada(), fila);
+			if (!deportistas.containsKey(fila.claveDeportista())) deportistasLote.putIfAbsent(fila.claveDeportista(), fila);
+		}
+
+		buscar(conexion, "SELECT id_deporte, nombre FROM Deporte WHERE nombre IN ", "?", deportesLote.values(),
+				(ps, i, f) -> ps.setString(i, f.getDeporte()),
+				rs -> deportes.put(rs.getString(2), rs.getInt(1)));
+		buscar(conexion, "SELECT id_equipo, nombre, iniciales FROM Equipo WHERE (nombre, iniciales) IN ", "(?, ?)",
+				equiposLote.values(), (ps, i, f) -> {
+					ps.setString(i, f.getEquipo());
+					ps.setString(i + 1, f.getNoc());
+				}, rs -> equipos.put(rs.getString(2) + "|" + rs.getString(3), rs.getInt(1)));
+		buscar(conexion, "SELECT id_olimpiada, nombre, anio, temporada, ciudad FROM Olimpiada"
+						+ " WHERE (nombre, anio, temporada, ciudad) IN ", "(?, ?, ?, ?)", olimpiadasLote.values(), (ps, i, f) -> {
+					ps.setString(i, f.getJuegos());
+					ps.setInt(i + 1, f.getAnio());
+					ps.setString(i + 2, f.getTemporada());
+					ps.setString(i + 3, f.getCiudad());
+				}, rs -> olimpiadas.put(rs.getString(2) + "|" + rs.getInt(3) + "|" + rs.getString(4) + "|" + rs.getString(5),
+						rs.getInt(1)));
+		buscar(conexion, "SELECT id_deportista, nombre, sexo, altura, peso FROM Deportista"
+						+ " WHERE (nombre, sexo, altura, peso) IN ", "(?, ?, ?, ?)", deportistasLote.values(), (ps, i, f) -> {
+					ps.setString(i, f.getNombre());
+					ps.setString(i + 1, String.valueOf(f.getSexo()));
+					ps.setInt(i + 2, f.getAltura());
+					ps.setInt(i + 3, Math.round(f.getPeso()));
+				}, rs -> deportistas.put(rs.getString(2) + "|" + rs.getString(3).charAt(0) + "|" + rs.getInt(4) + "|"
+						+ rs.getInt(5), rs.getInt(1)));
+
+		// Un evento solo puede existir si ya existen su olimpiada y su deporte
+		Map<String, FilaCsv> eventosLote = new LinkedHashMap<>();
+		for (FilaCsv fila : lote) {
+			if (olimpiadas.containsKey(fila.claveOlimpiada()) && deportes.containsKey(fila.getDeporte())
+					&& !eventos.containsKey(claveEvento(fila))) {
+				eventosLote.putIfAbsent(claveEvento(fila), fila);
+			}
+		}
+		buscar(conexion, "SELECT id_evento, nombre, id_olimpiada, id_deporte FROM Evento"
+						+ " WHERE (nombre, id_olimpiada, id_deporte) IN ", "(?, ?, ?)", eventosLote.values(), (ps, i, f) -> {
+					ps.setString(i, f.getEvento());
+					ps.setInt(i + 1, olimpiadas.get(f.claveOlimpiada()));
+					ps.setInt(i + 2, deportes.get(f.getDeporte()));
+				}, rs -> eventos.put(claveEvento(rs.getString(2), rs.getInt(3), rs.getInt(4)), rs.getInt(1)));
+
+		// Y una participación, si ya existen su deportista y su evento
+		Map<Long, int[]> participacionesLote = new LinkedHashMap<>();
+		for (FilaCsv fila : lote) {
+			Integer idDeportista = deportistas.get(fila.claveDeportista());
+			Integer idEvento = olimpiadas.containsKey(fila.claveOlimpiada()) && deportes.containsKey(fila.getDeporte())
+					? eventos.get(claveEvento(fila)) : null;
+			if (idDeportista == null || idEvento == null) continue;
+			long clave = claveParticipacion(idDeportista, idEvento);
+			if (!participaciones.contains(clave)) participacionesLote.putIfAbsent(clave, new int[]{idDeportista, idEvento});
+		}
+		buscar(conexion, "SELECT id_deportista, id_evento FROM Participacion WHERE (id_deportista, id_evento) IN ",
+				"(?, ?)", participacionesLote.values(), (ps, i, p) -> {
+					ps.setInt(i, p[0]);
+					ps.setInt(i + 1, p[1]);
+				}, rs -> participaciones.add(claveParticipacion(rs.getInt(1), rs.getInt(2))));
+	}
+
+	/**
+	 * Consulta por bloques las filas cuyas claves están en la lista y pasa cada resultado al lector.
+	 *
+	 * @param select La consulta hasta {@code IN} incluido.
+	 * @param grupo Marcadores de una clave, por ejemplo {@code (?, ?)}.
+	 */
+	private static <T> void buscar(Connection conexion, String select, String grupo, Collection<T> claves,
+								   Parametros<T> parametros, Lector lector) throws SQLException {
+		if (claves.isEmpty()) return;
+		List<T> lista = new ArrayList<>(claves);
+		int parametrosPorClave = (int) grupo.chars().filter(c -> c == '?').count();
+		for (int desde = 0; desde < lista.size(); desde += FILAS_POR_SENTENCIA) {
+			int hasta = Math.min(desde + FILAS_POR_SENTENCIA, lista.size());
+			try (PreparedStatement ps = conexion.prepareStatement(sentencia(select + "(", grupo, hasta - desde) + ")")) {
+				for (int i = desde; i < hasta; i++) {
+					parametros.asignar(ps, (i - desde) * parametrosPorClave + 1, lista.get(i));
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						lector.leer(rs);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserta por lotes las dimensiones del lote que todavía no existen y devuelve las participaciones
+	 * nuevas, ya con sus IDs resueltos, listas para insertarse.
+	 *
+	 * @param conexion La conexión JDBC a usar.
+	 * @param lote Las filas leídas del CSV.
+	 * @return Las participaciones del lote que todavía no existen en la base de datos.
+	 * @throws SQLException Si falla alguna inserción.
+	 */
+	public List<ParticipacionPendiente> resolverLote(Connection conexion, List<FilaCsv> lote) throws SQLException {
+		Map<String, FilaCsv> nuevosDeportes = new LinkedHashMap<>();
+		Map<String, FilaCsv> nuevosEquipos = new LinkedHashMap<>();
+		Map<String, FilaCsv> nuevasOlimpiadas = new LinkedHashMap<>();
+		Map<String, FilaCsv> nuevosDeportistas = new LinkedHashMap<>();
+		for (FilaCsv fila : lote) {
+			if (!deportes.containsKey(fila.getDeporte())) nuevosDeportes.putIfAbsent(fila.getDeporte(), fila);
+			if (!equipos.containsKey(fila.claveEquipo())) nuevosEquipos.putIfAbsent(fila.claveEquipo(), fila);
+			if (!olimpiadas.containsKey(fila.claveOlimpiada())) nuevasOlimpiadas.putIfAbsent(fila.claveOlimpiada(), fila);
+			if (!deportistas.containsKey(fila.claveDeportista())) nuevosDeportistas.putIfAbsent(fila.claveDeportista(), fila);
+		}
+
+		insertar(conexion, "INSERT INTO Deporte (nombre) VALUES ", "(?)", nuevosDeportes, deportes, (ps, i, f) -> {
+			ps.setString(i, f.getDeporte());
+		});
+		insertar(conexion, "INSERT INTO Equipo (nombre, iniciales) VALUES ", "(?, ?)", nuevosEquipos, equipos, (ps, i, f) -> {
+			ps.setString(i, f.getEquipo());
+			ps.setString(i + 1, f.getNoc());
+		});
+		insertar(conexion, "INSERT INTO Olimpiada (nombre, anio, temporada, ciudad) VALUES ", "(?, ?, ?, ?)",
+				nuevasOlimpiadas, olimpiadas, (ps, i, f) -> {
+					ps.setString(i, f.getJuegos());
+					ps.setInt(i + 1, f.getAnio());
+					ps.setString(i + 2, f.getTemporada());
+					ps.setString(i + 3, f.getCiudad());
+				});
+		insertar(conexion, "INSERT INTO Deportista (nombre, sexo, altura, peso) VALUES ", "(?, ?, ?, ?)",
+				nuevosDeportistas, deportistas, (ps, i, f) -> {
+					ps.setString(i, f.getNombre());
+					ps.setString(i + 1, String.valueOf(f.getSexo()));
+					ps.setInt(i + 2, f.getAltura());
+					ps.setInt(i + 3, Math.round(f.getPeso()));
+				});
+
+		// Los eventos dependen de la olimpiada y del deporte, por eso se resuelven después
+		Map<String, FilaCsv> nuevosEventos = new LinkedHashMap<>();
+		for (FilaCsv fila : lote) {
+			String clave = claveEvento(fila);
+			if (!eventos.containsKey(clave)) nuevosEventos.putIfAbsent(clave, fila);
+		}
+		insertar(conexion, "INSERT INTO Evento (nombre, id_olimpiada, id_deporte) VALUES ", "(?, ?, ?)",
+				nuevosEventos, eventos, (ps, i, f) -> {
+					ps.setString(i, f.getEvento());
+					ps.setInt(i + 1, olimpiadas.get(f.claveOlimpiada()));
+					ps.setInt(i + 2, deportes.get(f.getDeporte()));
+				});
+
+		List<ParticipacionPendiente> pendientes = new ArrayList<>();
+		for (FilaCsv fila : lote) {
+			int idDeportista = deportistas.get(fila.claveDeportista());
+			int idEvento = eventos.get(claveEvento(fila));
+			long claveParticipacion = claveParticipacion(idDeportista, idEvento);
+			if (participaciones.add(claveParticipacion)) {
+				participacionesPendientes.add(claveParticipacion);
+				pendientes.add(new ParticipacionPendiente(idDeportista, idEvento, equipos.get(fila.claveEquipo()),
+						fila.getEdad(), fila.getMedalla()));
+			}
+		}
+		return pendientes;
+	}
+
+	/**
+	 * Da por buenas las entradas añadidas desde el último lote confirmado.
+	 */
+	public void confirmarLote() {
+		mapasPendientes.clear();
+		clavesPendientes.clear();
+		participacionesPendientes.clear();
+	}
+
+	/**
+	 * Elimina las entradas añadidas desde el último lote confirmado, porque su transacción se ha deshecho.
+	 */
+	public void deshacerLote() {
+		for (int i = 0; i < clavesPendientes.size(); i++) {
+			mapasPendientes.get(i).remove(clavesPendientes.get(i));
+		}
+		participaciones.removeAll(participacionesPendientes);
+		confirmarLote();
+	}
+
+	/**
+	 * Olvida todas las entradas de los diccionarios. Solo debe llamarse después de
+	 * {@link #confirmarLote()} o {@link #deshacerLote()}; las cargas que usan
+	 * {@link #cargarLote(Connection, List)} lo llaman tras cada lote para que la memoria no crezca con el
+	 * tamaño del archivo.
+	 */
+	public void vaciar() {
+		deportes.clear();
+		equipos.clear();
+		olimpiadas.clear();
+		eventos.clear();
+		deportistas.clear();
+		participaciones.clear();
+		confirmarLote();
+	}
+
+	/**
+	 * Inserta las participaciones con sentencias INSERT de varias filas.
+	 *
+	 * @param conexion La conexión JDBC a usar.
+	 * @param pendientes Las participaciones a insertar.
+	 * @throws SQLException Si falla la inserción.
+	 */
+	public static void insertarParticipaciones(Connection conexion, List<ParticipacionPendiente> pendientes) throws SQLException {
+		insertarVariasFilas(conexion, "INSERT INTO Participacion (id_deportista, id_evento, id_equipo, edad, medalla) VALUES ",
+				"(?, ?, ?, ?, ?)", pendientes, (ps, i, p) -> {
+					ps.setInt(i, p.idDeportista);
+					ps.setInt(i + 1, p.idEvento);
+					ps.setInt(i + 2, p.idEquipo);
+					ps.setInt(i + 3, p.edad);
+					ps.setString(i + 4, p.medalla);
+				}, false);
+	}
+
+	/**
+	 * Inserta las filas nuevas de una dimensión y guarda en el diccionario los IDs generados.
+	 */
+	private void insertar(Connection conexion, String insert, String grupo, Map<String, FilaCsv> nuevos,
+						  Map<String, Integer> diccionario, Parametros<FilaCsv> parametros) throws SQLException {
+		if (nuevos.isEmpty()) return;
+		List<Integer> ids = insertarVariasFilas(conexion, insert, grupo, new ArrayList<>(nuevos.values()), parametros, true);
+		int i = 0;
+		for (String clave : nuevos.keySet()) {
+			diccionario.put(clave, ids.get(i++));
+			mapasPendientes.add(diccionario);
+			clavesPendientes.add(clave);
+		}
+	}
+
+	/**
+	 * Inserta filas con sentencias {@code INSERT ... VALUES (...), (...), ...} de hasta
+	 * {@link #FILAS_POR_SENTENCIA} filas, reutilizando la misma sentencia preparada para todos los
+	 * grupos completos. Los IDs generados se leen por grupos y se devuelven en el orden de las filas.
+	 *
+	 * @param insert Comienzo de la sentencia, hasta {@code VALUES} incluido.
+	 * @param grupo Marcadores de una fila, por ejemplo {@code (?, ?)}.
+	 * @param devolverClaves Si se deben leer los IDs generados.
+	 * @return Los IDs generados, o una lista vacía si no se han pedido.
+	 */
+	static <T> List<Integer> insertarVariasFilas(Connection conexion, String insert, String grupo, List<T> filas,
+												 Parametros<T> parametros, boolean devolverClaves) throws SQLException {
+		List<Integer> ids = new ArrayList<>(devolverClaves ? filas.size() : 0);
+		if (filas.isEmpty()) return ids;
+		int parametrosPorFila = (int) grupo.chars().filter(c -> c == '?').count();
+		int modo = devolverClaves ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+		PreparedStatement completa = null;
+		try {
+			for (int desde = 0; desde < filas.size(); desde += FILAS_POR_SENTENCIA) {
+				int hasta = Math.min(desde + FILAS_POR_SENTENCIA, filas.size());
+				boolean esCompleta = hasta - desde == FILAS_POR_SENTENCIA;
+				if (esCompleta && completa == null) {
+					completa = conexion.prepareStatement(sentencia(insert, grupo, FILAS_POR_SENTENCIA), modo);
+				}
+				PreparedStatement ps = esCompleta ? completa : conexion.prepareStatement(sentencia(insert, grupo, hasta - desde), modo);
+				try {
+					for (int i = desde; i < hasta; i++) {
+						parametros.asignar(ps, (i - desde) * parametrosPorFila + 1, filas.get(i));
+					}
+					ps.executeUpdate();
+					if (devolverClaves) {
+						try (ResultSet claves = ps.getGeneratedKeys()) {
+							while (claves.next()) {
+								ids.add(claves.getInt(1));
+							}
+						}
+					}
+				} finally {
+					if (!esCompleta) ps.close();
+				}
+			}
+		} finally {
+			if (completa != null) completa.close();
+		}
+		return ids;
+	}
+
+	private static String sentencia(String insert, String grupo, int filas) {
+		StringBuilder sql = new StringBuilder(insert.length() + filas * (grupo.length() + 2));
+		sql.append(insert);
+		for (int i = 0; i < filas; i++) {
+			if (i > 0) sql.append(", ");
+			sql.append(grupo);
+		}
+		return sql.toString();
+	}
+
+	// Acceso a los diccionarios cargados, para inicializar el RegistroConcurrente
+	Map<String, Integer> getDeportes() {
+		return deportes;
+	}
+
+	Map<String, Integer> getEquipos() {
+		return equipos;
+	}
+
+	Map<String, Integer> getOlimpiadas() {
+		return olimpiadas;
+	}
+
+	Map<String, Integer> getEventos() {
+		return eventos;
+	}
+
+	Map<String, Integer> getDeportistas() {
+		return deportistas;
+	}
+
+	Set<Long> getParticipaciones() {
+		return participaciones;
+	}
+
+	/**
+	 * Devuelve los IDs de una fila ya resuelta con {@link #resolverLote(Connection, List)}.
+	 *
+	 * @param fila La fila.
+	 * @return Un array con el ID del deportista, del evento y del equipo, en ese orden.
+	 */
+	public int[] idsDe(FilaCsv fila) {
+		return new int[]{deportistas.get(fila.claveDeportista()), eventos.get(claveEvento(fila)),
+				equipos.get(fila.claveEquipo())};
+	}
+
+	private String claveEvento(FilaCsv fila) {
+		return claveEvento(fila.getEvento(), olimpiadas.get(fila.claveOlimpiada()), deportes.get(fila.getDeporte()));
+	}
+
+	static String claveEvento(String nombre, int idOlimpiada, int idDeporte) {
+		return nombre + "|" + idOlimpiada + "|" + idDeporte;
+	}
+
+	static long claveParticipacion(int idDeportista, int idEvento) {
+		return ((long) idDeportista << 32) | (idEvento & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Asigna los parámetros de una fila a una sentencia de inserción, empezando en el índice indicado.
+	 */
+	interface Parametros<T> {
+		void asignar(PreparedStatement ps, int indice, T fila) throws SQLException;
+	}
+
+	/**
+	 * Guarda en los diccionarios una fila leída de la base de datos.
+	 */
+	private interface Lector {
+		void leer(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * Participación nueva con todos sus IDs ya resueltos.
+	 */
+	public static class ParticipacionPendiente {
+		final int idDeportista;
+		final int idEvento;
+		final int idEquipo;
+		final int edad;
+		final String medalla;
+
+		ParticipacionPendiente(int idDeportista, int idEvento, int idEquipo, int edad, String medalla) {
+			this.idDeportista = idDeportista;
+			this.idEvento = idEvento;
+			this.idEquipo = idEquipo;
+			this.edad = edad;
+			this.medalla = medalla;
+		}
+	}
+}
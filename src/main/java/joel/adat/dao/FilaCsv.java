@@ -0,0 +1,208 @@
+package joel.adat.dao;
+
+/**
+ * Clase que representa una fila ya tipada del CSV athlete_events.
+ * Los valores "NA" numéricos se convierten a 0, igual que en la carga por JDBC del menú.
+ */
+public class FilaCsv {
+
+	/** Cabecera esperada en la primera línea del CSV. */
+	public static final String CABECERA = "ID,Name,Sex,Age,Height,Weight,Team,NOC,Games,Year,Season,City,Sport,Event,Medal";
+
+	/** Número de campos de cada fila. */
+	public static final int NUM_CAMPOS = 15;
+
+	private final String nombre;
+	private final char sexo;
+	private final int edad;
+	private final int altura;
+	private final float peso;
+	private final String equipo;
+	private final String noc;
+	private final String juegos;
+	private final int anio;
+	private final String temporada;
+	private final String ciudad;
+	private final String deporte;
+	private final String evento;
+	private final String medalla;
+
+	/**
+	 * Constructor que inicializa todos los campos de la fila.
+	 */
+	public FilaCsv(String nombre, char sexo, int edad, int altura, float peso, String equipo, String noc,
+				   String juegos, int anio, String temporada, String ciudad, String deporte, String evento,
+				   String medalla) {
+		this.nombre = nombre;
+		this.sexo = sexo;
+		this.edad = edad;
+		this.altura = altura;
+		this.peso = peso;
+		this.equipo = equipo;
+		this.noc = noc;
+		this.juegos = juegos;
+		this.anio = anio;
+		this.temporada = temporada;
+		this.ciudad = ciudad;
+		this.deporte = deporte;
+		this.evento = evento;
+		this.medalla = medalla;
+	}
+
+	/**
+	 * Crea una fila a partir de los campos ya separados de una línea del CSV.
+	 *
+	 * @param campos Los 15 campos de la línea, en el orden de {@link #CABECERA}.
+	 * @return La fila tipada.
+	 * @throws IllegalArgumentException Si la línea no tiene 15 campos.
+	 */
+	public static FilaCsv desdeCampos(String[] campos) {
+		comprobarCampos(campos.length);
+		return new FilaCsv(
+				campos[1],
+				campos[2].charAt(0),
+				entero(campos[3]),
+				entero(campos[4]),
+				decimal(campos[5]),
+				campos[6],
+				campos[7],
+				campos[8],
+				entero(campos[9]),
+				campos[10],
+				campos[11],
+				campos[12],
+				campos[13],
+				campos[14]);
+	}
+
+	/**
+	 * Crea una fila a partir de la fila actual del lector mapeado. Solo se crean las cadenas de los
+	 * campos de texto; los numéricos se convierten directamente desde los bytes del archivo.
+	 *
+	 * @param lector El lector posicionado en la fila.
+	 * @return La fila tipada.
+	 * @throws IllegalArgumentException Si la fila no tiene 15 campos.
+	 */
+	public static FilaCsv desdeLector(LectorCsvMapeado lector) {
+		comprobarCampos(lector.numCampos());
+		return new FilaCsv(
+				lector.texto(1),
+				lector.caracter(2),
+				lector.entero(3),
+				lector.entero(4),
+				lector.decimal(5),
+				lector.texto(6),
+				lector.texto(7),
+				lector.texto(8),
+				lector.entero(9),
+				lector.texto(10),
+				lector.texto(11),
+				lector.texto(12),
+				lector.texto(13),
+				lector.texto(14));
+	}
+
+	/**
+	 * Comprueba si la fila actual del lector es la cabecera esperada.
+	 *
+	 * @param lector El lector posicionado en la primera fila.
+	 * @return true si la cabecera es correcta.
+	 */
+	public static boolean esCabecera(LectorCsvMapeado lector) {
+		return String.join(",", lector.campos()).equals(CABECERA);
+	}
+
+	private static void comprobarCampos(int numCampos) {
+		if (numCampos != NUM_CAMPOS) {
+			throw new IllegalArgumentException("La fila tiene " + numCampos + " campos en lugar de " + NUM_CAMPOS);
+		}
+	}
+
+	private static int entero(String valor) {
+		return valor.equals("NA") ? 0 : Math.round(Float.parseFloat(valor));
+	}
+
+	private static float decimal(String valor) {
+		return valor.equals("NA") ? 0 : Float.parseFloat(valor);
+	}
+
+	// Claves naturales usadas por los diccionarios de la carga masiva. La columna peso es entera, así que
+	// la clave lleva el peso redondeado, igual que se inserta y se lee de la base de datos
+	public String claveDeportista() {
+		return nombre + "|" + sexo + "|" + altura + "|" + Math.round(peso);
+	}
+
+	public String claveEquipo() {
+		return equipo + "|" + noc;
+	}
+
+	public String claveOlimpiada() {
+		return juegos + "|" + anio + "|" + temporada + "|" + ciudad;
+	}
+
+	// Clave natural de la participación (deportista, olimpiada y evento) y resto de datos de la fila,
+	// usados por la carga incremental para detectar filas nuevas o modificadas
+	public String claveParticipacion() {
+		return claveDeportista() + "|" + claveOlimpiada() + "|" + deporte + "|" + evento;
+	}
+
+	public String datosParticipacion() {
+		return edad + "|" + equipo + "|" + noc + "|" + medalla;
+	}
+
+	public String getNombre() {
+		return nombre;
+	}
+
+	public char getSexo() {
+		return sexo;
+	}
+
+	public int getEdad() {
+		return edad;
+	}
+
+	public int getAltura() {
+		return altura;
+	}
+
+	public float getPeso() {
+		return peso;
+	}
+
+	public String getEquipo() {
+		return equipo;
+	}
+
+	public String getNoc() {
+		return noc;
+	}
+
+	public String getJuegos() {
+		return juegos;
+	}
+
+	public int getAnio() {
+		return anio;
+	}
+
+	public String getTemporada() {
+		return temporada;
+	}
+
+	public String getCiudad() {
+		return ciudad;
+	}
+
+	public String getDeporte() {
+		return deporte;
+	}
+
+	public String getEvento() {
+		return evento;
+	}
+
+	public String getMedalla() {
+		return medalla;
+	}
+}
@@ -0,0 +1,30 @@
+package joel.adat.dao;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * CSV sin comprimir leído con el {@link LectorCsvMapeado}.
+ */
+class FuenteCsvMapeada implements FuenteFilas {
+
+	private final LectorCsvMapeado lector;
+
+	FuenteCsvMapeada(Path ruta) throws IOException {
+		lector = new LectorCsvMapeado(ruta);
+		if (!lector.siguienteFila() || !FilaCsv.esCabecera(lector)) {
+			lector.close();
+			throw new IOException("El formato del CSV no es correcto.");
+		}
+	}
+
+	@Override
+	public FilaCsv siguiente() throws IOException {
+		return lector.siguienteFila() ? FilaCsv.desdeLector(lector) : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		lector.close();
+	}
+}
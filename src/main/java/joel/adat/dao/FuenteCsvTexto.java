@@ -0,0 +1,66 @@
+package joel.adat.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * CSV leído desde un flujo de texto, por ejemplo al descomprimir gzip. Como con el
+ * {@link LectorCsvMapeado}, un campo entre comillas puede contener saltos de línea: la fila sigue en las
+ * líneas siguientes hasta que se cierran las comillas.
+ */
+class FuenteCsvTexto implements FuenteFilas {
+
+	private final BufferedReader br;
+
+	FuenteCsvTexto(BufferedReader br) throws IOException {
+		this.br = br;
+		if (!FilaCsv.CABECERA.equals(br.readLine())) {
+			br.close();
+			throw new IOException("El formato del CSV no es correcto.");
+		}
+	}
+
+	@Override
+	public FilaCsv siguiente() throws IOException {
+		String fila = leerFila(br);
+		return fila == null ? null : FilaCsv.desdeCampos(LectorCsvMapeado.dividirLinea(fila));
+	}
+
+	/**
+	 * Lee una fila completa. Mientras el número de comillas sea impar hay un campo abierto y la fila
+	 * continúa en la línea siguiente; las comillas escapadas ({@code ""}) no cambian la paridad.
+	 *
+	 * @param br El lector del que se leen las líneas.
+	 * @return La fila completa o {@code null} al final del archivo.
+	 * @throws IOException Si el archivo termina con un campo entre comillas sin cerrar.
+	 */
+	static String leerFila(BufferedReader br) throws IOException {
+		String linea = br.readLine();
+		if (linea == null || comillas(linea) % 2 == 0) return linea;
+
+		StringBuilder fila = new StringBuilder(linea);
+		int total = comillas(linea);
+		while (total % 2 != 0) {
+			String siguiente = br.readLine();
+			if (siguiente == null) {
+				throw new IOException("El CSV termina dentro de un campo entre comillas.");
+			}
+			fila.append('\n').append(siguiente);
+			total += comillas(siguiente);
+		}
+		return fila.toString();
+	}
+
+	private static int comillas(String linea) {
+		int n = 0;
+		for (int i = 0; i < linea.length(); i++) {
+			if (linea.charAt(i) == '"') n++;
+		}
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		br.close();
+	}
+}
@@ -0,0 +1,78 @@
+package joel.adat.dao;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Origen de filas para los importadores. Permite leer el dataset en distintos formatos sin que el
+ * importador tenga que saber cuál es.
+ *
+ * <p>{@link #abrir(Path)} detecta el formato por el contenido del archivo, no por la extensión:</p>
+ * <ul>
+ *     <li>CSV sin comprimir: se lee con el {@link LectorCsvMapeado}.</li>
+ *     <li>CSV o JSON-Lines comprimidos con gzip o zstd: se descomprimen al vuelo, sin escribir nada en
+ *     disco.</li>
+ *     <li>JSON-Lines: un objeto por línea con las mismas claves que la cabecera del CSV.</li>
+ * </ul>
+ */
+public interface FuenteFilas extends Closeable {
+
+	/**
+	 * Lee la siguiente fila.
+	 *
+	 * @return La fila, o null si no quedan más.
+	 * @throws IOException Si falla la lectura o la fila está mal formada.
+	 */
+	FilaCsv siguiente() throws IOException;
+
+	/**
+	 * Abre el archivo detectando su formato a partir de sus primeros bytes.
+	 *
+	 * @param ruta Ruta del archivo.
+	 * @return La fuente de filas, ya situada tras la cabecera si la tiene.
+	 * @throws IOException Si no se puede abrir el archivo o el formato no es válido.
+	 */
+	static FuenteFilas abrir(Path ruta) throws IOException {
+		InputStream in = new BufferedInputStream(Files.newInputStream(ruta), 1 << 16);
+		try {
+			in.mark(4);
+			byte[] magico = in.readNBytes(4);
+			in.reset();
+
+			boolean gzip = magico.length >= 2 && (magico[0] & 0xFF) == 0x1F && (magico[1] & 0xFF) == 0x8B;
+			boolean zstd = magico.length == 4 && (magico[0] & 0xFF) == 0x28 && (magico[1] & 0xFF) == 0xB5
+					&& (magico[2] & 0xFF) == 0x2F && (magico[3] & 0xFF) == 0xFD;
+			if (gzip) {
+				in = new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16);
+			} else if (zstd) {
+				in = new BufferedInputStream(new ZstdInputStream(in), 1 << 16);
+			}
+
+			in.mark(1);
+			int primero = in.read();
+			in.reset();
+			if (primero == '{') {
+				return new FuenteJsonLineas(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+			}
+			if (gzip || zstd) {
+				return new FuenteCsvTexto(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+			}
+			// El CSV sin comprimir se lee mapeado en memoria, sin pasar por el flujo
+			in.close();
+			return new FuenteCsvMapeada(ruta);
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+}
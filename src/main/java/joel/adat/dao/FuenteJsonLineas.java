@@ -0,0 +1,141 @@
+package joel.adat.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * JSON-Lines: cada línea es un objeto plano con las claves de la cabecera del CSV
+ * ({@code "Name"}, {@code "Sex"}, ...). Un valor {@code null} o una clave ausente equivalen a "NA".
+ */
+class FuenteJsonLineas implements FuenteFilas {
+
+	private static final String[] CLAVES = FilaCsv.CABECERA.split(",");
+
+	private final BufferedReader br;
+
+	FuenteJsonLineas(BufferedReader br) {
+		this.br = br;
+	}
+
+	@Override
+	public FilaCsv siguiente() throws IOException {
+		String linea;
+		do {
+			linea = br.readLine();
+			if (linea == null) return null;
+		} while (linea.isBlank());
+
+		String[] campos = new String[CLAVES.length];
+		Arrays.fill(campos, "NA");
+		new ObjetoJson(linea).leer((clave, valor) -> {
+			for (int i = 0; i < CLAVES.length; i++) {
+				if (CLAVES[i].equals(clave)) {
+					campos[i] = valor == null ? "NA" : valor;
+					return;
+				}
+			}
+		});
+		return FilaCsv.desdeCampos(campos);
+	}
+
+	@Override
+	public void close() throws IOException {
+		br.close();
+	}
+
+	/**
+	 * Analizador mínimo de un objeto JSON plano, cuyos valores son cadenas, números, booleanos o null.
+	 */
+	private static class ObjetoJson {
+		private final String texto;
+		private int pos;
+
+		ObjetoJson(String texto) {
+			this.texto = texto;
+		}
+
+		interface Destino {
+			void campo(String clave, String valor);
+		}
+
+		void leer(Destino destino) throws IOException {
+			saltarEspacios();
+			esperar('{');
+			saltarEspacios();
+			if (mirar() == '}') return;
+			while (true) {
+				saltarEspacios();
+				String clave = cadena();
+				saltarEspacios();
+				esperar(':');
+				saltarEspacios();
+				destino.campo(clave, valor());
+				saltarEspacios();
+				char c = siguienteCaracter();
+				if (c == '}') return;
+				if (c != ',') throw error("Se esperaba ',' o '}'");
+			}
+		}
+
+		private String valor() throws IOException {
+			char c = mirar();
+			if (c == '"') return cadena();
+			int inicio = pos;
+			while (pos < texto.length() && ",} \t".indexOf(texto.charAt(pos)) < 0) pos++;
+			String literal = texto.substring(inicio, pos);
+			if (literal.isEmpty()) throw error("Valor vacío");
+			return literal.equals("null") ? null : literal;
+		}
+
+		private String cadena() throws IOException {
+			esperar('"');
+			StringBuilder sb = new StringBuilder();
+			while (true) {
+				char c = siguienteCaracter();
+				if (c == '"') return sb.toString();
+				if (c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				char e = siguienteCaracter();
+				switch (e) {
+					case 'n': sb.append('\n'); break;
+					case 't': sb.append('\t'); break;
+					case 'r': sb.append('\r'); break;
+					case 'b': sb.append('\b'); break;
+					case 'f': sb.append('\f'); break;
+					case 'u':
+						if (pos + 4 > texto.length()) throw error("Escape unicode incompleto");
+						sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+						pos += 4;
+						break;
+					default: sb.append(e);
+				}
+			}
+		}
+
+		private void saltarEspacios() {
+			while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+		}
+
+		private char mirar() throws IOException {
+			if (pos >= texto.length()) throw error("Fin de línea inesperado");
+			return texto.charAt(pos);
+		}
+
+		private char siguienteCaracter() throws IOException {
+			char c = mirar();
+			pos++;
+			return c;
+		}
+
+		private void esperar(char esperado) throws IOException {
+			if (siguienteCaracter() != esperado) throw error("Se esperaba '" + esperado + "'");
+		}
+
+		private IOException error(String mensaje) {
+			return new IOException(mensaje + " en la posición " + pos + " de la línea JSON: " + texto);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package joel.adat.dao;
+
+/**
+ * Clase que muestra el progreso de una carga: filas procesadas, filas por segundo y tiempo estimado
+ * hasta terminar. La estimación se calcula con los bytes leídos, porque el número total de filas no
+ * se conoce hasta llegar al final del archivo.
+ */
+public class InformeProgreso {
+
+	private static final long INTERVALO_NANOS = 5_000_000_000L;
+
+	private final long bytesTotales;
+	private final long bytesIniciales;
+	private final long filasIniciales;
+	private final long inicio = System.nanoTime();
+	private long ultimoInforme = inicio;
+
+	/**
+	 * @param bytesTotales Tamaño del archivo.
+	 * @param bytesIniciales Bytes ya procesados en una carga anterior.
+	 * @param filasIniciales Filas ya procesadas en una carga anterior.
+	 */
+	public InformeProgreso(long bytesTotales, long bytesIniciales, long filasIniciales) {
+		this.bytesTotales = bytesTotales;
+		this.bytesIniciales = bytesIniciales;
+		this.filasIniciales = filasIniciales;
+	}
+
+	/**
+	 * Muestra el progreso si ha pasado suficiente tiempo desde el último informe.
+	 *
+	 * @param filas Filas procesadas en total.
+	 * @param bytes Bytes procesados en total.
+	 */
+	public void actualizar(long filas, long bytes) {
+		long ahora = System.nanoTime();
+		if (ahora - ultimoInforme < INTERVALO_NANOS) return;
+		ultimoInforme = ahora;
+
+		double segundos = (ahora - inicio) / 1_000_000_000.0;
+		double filasPorSegundo = (filas - filasIniciales) / segundos;
+		double bytesPorSegundo = (bytes - bytesIniciales) / segundos;
+		long restante = bytesPorSegundo > 0 ? Math.round((bytesTotales - bytes) / bytesPorSegundo) : -1;
+		System.out.printf("Progreso: %d filas (%.1f%%) | %.0f filas/s | ETA %s%n",
+				filas, 100.0 * bytes / bytesTotales, filasPorSegundo, formatear(restante));
+	}
+
+	private static String formatear(long segundos) {
+		if (segundos < 0) return "desconocida";
+		return String.format("%d:%02d:%02d", segundos / 3600, (segundos / 60) % 60, segundos % 60);
+	}
+}
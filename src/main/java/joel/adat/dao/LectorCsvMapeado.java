@@ -0,0 +1,413 @@
+package joel.adat.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Clase que lee un CSV según RFC-4180 a través de un {@code FileChannel} mapeado en memoria.
+ *
+ * <p>Cada llamada a {@link #siguienteFila()} localiza los campos de la fila siguiente y guarda solo su
+ * posición y longitud, sin crear cadenas intermedias. Los valores se convierten bajo demanda con
+ * {@link #texto(int)}, {@link #entero(int)} o {@link #decimal(int)}. Los campos entre comillas pueden
+ * contener comas, saltos de línea y comillas escapadas ({@code ""}).</p>
+ *
+ * <p>El archivo se recorre por ventanas de tamaño fijo, así que admite archivos de varios GB; una
+ * fila no puede ser más grande que la ventana.</p>
+ */
+public class LectorCsvMapeado implements Closeable {
+
+	private static final int VENTANA_POR_DEFECTO = 64 * 1024 * 1024;
+
+	// Tipos de campo
+	private static final byte NORMAL = 0;
+	private static final byte COMILLAS = 1;
+	private static final byte COMILLAS_ESCAPADAS = 2;
+
+	// Mayor mantisa y potencias de diez que un float representa exactamente
+	private static final long MANTISA_EXACTA = 1 << 24;
+	private static final float[] POTENCIAS_10 = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+	private final FileChannel canal;
+	private final long tamArchivo;
+	private final int tamVentana;
+	private MappedByteBuffer buffer;
+	private long inicioVentana;
+	private int pos;
+	private int inicioFila;
+	private int finFila;
+
+	private int numCampos;
+	private int[] inicios = new int[16];
+	private int[] longitudes = new int[16];
+	private byte[] tipos = new byte[16];
+	private byte[] auxiliar = new byte[256];
+
+	/**
+	 * Abre el archivo con la ventana de lectura por defecto (64 MB).
+	 *
+	 * @param ruta Ruta del archivo CSV.
+	 * @throws IOException Si no se puede abrir el archivo.
+	 */
+	public LectorCsvMapeado(Path ruta) throws IOException {
+		this(ruta, VENTANA_POR_DEFECTO);
+	}
+
+	/**
+	 * Abre el archivo con un tamaño de ventana concreto.
+	 *
+	 * @param ruta Ruta del archivo CSV.
+	 * @param tamVentana Número de bytes que se mapean cada vez.
+	 * @throws IOException Si no se puede abrir el archivo.
+	 */
+	public LectorCsvMapeado(Path ruta, int tamVentana) throws IOException {
+		this.canal = FileChannel.open(ruta, StandardOpenOption.READ);
+		this.tamArchivo = canal.size();
+		this.tamVentana = tamVentana;
+	}
+
+	/**
+	 * Avanza a la siguiente fila del archivo.
+	 *
+	 * @return true si se ha leído una fila, false si se ha llegado al final del archivo.
+	 * @throws IOException Si la fila está mal formada o es mayor que la ventana.
+	 */
+	public boolean siguienteFila() throws IOException {
+		while (true) {
+			if (buffer == null || pos >= buffer.limit()) {
+				long siguiente = inicioVentana + pos;
+				if (siguiente >= tamArchivo) return false;
+				mapear(siguiente);
+			}
+			int fin = analizarFila(pos);
+			if (fin >= 0) {
+				inicioFila = pos;
+				pos = fin;
+				return true;
+			}
+			// La fila continúa en la siguiente ventana: se vuelve a mapear desde su inicio
+			if (pos == 0) {
+				throw new IOException("Fila mayor que la ventana de lectura en la posición " + inicioVentana);
+			}
+			mapear(inicioVentana + pos);
+		}
+	}
+
+	/**
+	 * @return La posición en el archivo donde empieza la fila siguiente.
+	 */
+	public long posicion() {
+		return inicioVentana + pos;
+	}
+
+	/**
+	 * Coloca el lector al principio de una fila ya conocida, por ejemplo una devuelta por {@link #posicion()}.
+	 *
+	 * @param posicion La posición en el archivo de la fila.
+	 * @throws IOException Si no se puede mapear el archivo.
+	 */
+	public void saltarA(long posicion) throws IOException {
+		if (posicion >= tamArchivo) {
+			inicioVentana = tamArchivo;
+			buffer = null;
+			pos = 0;
+			return;
+		}
+		mapear(posicion);
+	}
+
+	/**
+	 * @return El tamaño del archivo en bytes.
+	 */
+	public long tamArchivo() {
+		return tamArchivo;
+	}
+
+	/**
+	 * @return El texto original de la fila actual, sin el salto de línea.
+	 */
+	public String filaOriginal() {
+		byte[] bytes = new byte[finFila - inicioFila];
+		buffer.get(inicioFila, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void mapear(long desde) throws IOException {
+		inicioVentana = desde;
+		buffer = canal.map(FileChannel.MapMode.READ_ONLY, desde, Math.min(tamVentana, tamArchivo - desde));
+		pos = 0;
+	}
+
+	/**
+	 * Localiza los campos de la fila que empieza en {@code p}.
+	 *
+	 * @return La posición de inicio de la fila siguiente, o -1 si la fila no termina dentro de la ventana.
+	 */
+	private int analizarFila(int p) throws IOException {
+		int lim = buffer.limit();
+		boolean finArchivo = inicioVentana + lim >= tamArchivo;
+		int i = p;
+		numCampos = 0;
+		while (true) {
+			if (i < lim && buffer.get(i) == '"') {
+				int ini = ++i;
+				byte tipo = COMILLAS;
+				while (true) {
+					if (i >= lim) {
+						if (finArchivo) throw new IOException("Comillas sin cerrar en la posición " + (inicioVentana + ini));
+						return -1;
+					}
+					if (buffer.get(i) == '"') {
+						if (i + 1 >= lim && !finArchivo) return -1;
+						if (i + 1 < lim && buffer.get(i + 1) == '"') {
+							tipo = COMILLAS_ESCAPADAS;
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				aniadirCampo(ini, i - ini, tipo);
+				i++;
+			} else {
+				int ini = i;
+				while (i < lim) {
+					byte b = buffer.get(i);
+					if (b == ',' || b == '\n' || b == '\r') break;
+					i++;
+				}
+				if (i >= lim && !finArchivo) return -1;
+				aniadirCampo(ini, i - ini, NORMAL);
+			}
+
+			finFila = i;
+			if (i >= lim) return i;
+			byte b = buffer.get(i);
+			if (b == ',') {
+				i++;
+			} else if (b == '\n') {
+				return i + 1;
+			} else if (b == '\r') {
+				if (i + 1 >= lim && !finArchivo) return -1;
+				return (i + 1 < lim && buffer.get(i + 1) == '\n') ? i + 2 : i + 1;
+			} else {
+				throw new IOException("Carácter inesperado tras unas comillas en la posición " + (inicioVentana + i));
+			}
+		}
+	}
+
+	private void aniadirCampo(int inicio, int longitud, byte tipo) {
+		if (numCampos == inicios.length) {
+			inicios = Arrays.copyOf(inicios, numCampos * 2);
+			longitudes = Arrays.copyOf(longitudes, numCampos * 2);
+			tipos = Arrays.copyOf(tipos, numCampos * 2);
+		}
+		inicios[numCampos] = inicio;
+		longitudes[numCampos] = longitud;
+		tipos[numCampos] = tipo;
+		numCampos++;
+	}
+
+	/**
+	 * @return El número de campos de la fila actual.
+	 */
+	public int numCampos() {
+		return numCampos;
+	}
+
+	/**
+	 * @param campo Índice del campo.
+	 * @return La posición del campo dentro del archivo, sin contar las comillas.
+	 */
+	public long inicio(int campo) {
+		comprobarCampo(campo);
+		return inicioVentana + inicios[campo];
+	}
+
+	/**
+	 * @param campo Índice del campo.
+	 * @return La longitud en bytes del campo, sin contar las comillas.
+	 */
+	public int longitud(int campo) {
+		comprobarCampo(campo);
+		return longitudes[campo];
+	}
+
+	/**
+	 * Indica si el campo vale "NA" (sin comillas), que en el dataset significa dato desconocido.
+	 *
+	 * @param campo Índice del campo.
+	 * @return true si el campo es "NA".
+	 */
+	public boolean esNA(int campo) {
+		comprobarCampo(campo);
+		int ini = inicios[campo];
+		return tipos[campo] == NORMAL && longitudes[campo] == 2 && buffer.get(ini) == 'N' && buffer.get(ini + 1) == 'A';
+	}
+
+	/**
+	 * Convierte el campo en una cadena UTF-8, deshaciendo las comillas escapadas.
+	 *
+	 * @param campo Índice del campo.
+	 * @return El valor del campo.
+	 */
+	public String texto(int campo) {
+		comprobarCampo(campo);
+		int ini = inicios[campo];
+		int lon = longitudes[campo];
+		if (auxiliar.length < lon) {
+			auxiliar = new byte[Math.max(lon, auxiliar.length * 2)];
+		}
+		int n = 0;
+		for (int i = ini; i < ini + lon; i++) {
+			byte b = buffer.get(i);
+			auxiliar[n++] = b;
+			if (b == '"' && tipos[campo] == COMILLAS_ESCAPADAS) i++;
+		}
+		return new String(auxiliar, 0, n, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Devuelve el primer carácter del campo.
+	 *
+	 * @param campo Índice del campo.
+	 * @return El primer carácter, que debe ser ASCII.
+	 * @throws IllegalArgumentException Si el campo está vacío.
+	 */
+	public char caracter(int campo) {
+		comprobarCampo(campo);
+		if (longitudes[campo] == 0) {
+			throw new IllegalArgumentException("El campo " + campo + " está vacío");
+		}
+		return (char) buffer.get(inicios[campo]);
+	}
+
+	/**
+	 * Comprueba que la fila actual tiene el campo pedido; si no, se leerían posiciones de la fila anterior.
+	 */
+	private void comprobarCampo(int campo) {
+		if (campo < 0 || campo >= numCampos) {
+			throw new IndexOutOfBoundsException("La fila tiene " + numCampos + " campos; se ha pedido el campo " + campo);
+		}
+	}
+
+	/**
+	 * Convierte el campo en un entero sin crear cadenas. "NA" y el campo vacío valen 0 y los
+	 * valores con decimales se redondean.
+	 *
+	 * @param campo Índice del campo.
+	 * @return El valor entero del campo.
+	 */
+	public int entero(int campo) {
+		if (esNA(campo) || longitudes[campo] == 0) return 0;
+		int ini = inicios[campo];
+		int fin = ini + longitudes[campo];
+		boolean negativo = buffer.get(ini) == '-';
+		int valor = 0;
+		for (int i = negativo ? ini + 1 : ini; i < fin; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') return Math.round(decimal(campo));
+			valor = valor * 10 + (b - '0');
+		}
+		return negativo ? -valor : valor;
+	}
+
+	/**
+	 * Convierte el campo en un decimal sin crear cadenas. "NA" y el campo vacío valen 0.
+	 *
+	 * <p>Con hasta 7 cifras significativas y 10 decimales la mantisa y la potencia de diez son exactas en
+	 * {@code float}, así que una sola división da el mismo resultado redondeado que
+	 * {@link Float#parseFloat(String)}; el resto de valores se convierten con él.</p>
+	 *
+	 * @param campo Índice del campo.
+	 * @return El valor decimal del campo.
+	 */
+	public float decimal(int campo) {
+		if (esNA(campo) || longitudes[campo] == 0) return 0;
+		int ini = inicios[campo];
+		int fin = ini + longitudes[campo];
+		boolean negativo = buffer.get(ini) == '-';
+		long mantisa = 0;
+		int decimales = 0;
+		boolean enFraccion = false;
+		for (int i = negativo ? ini + 1 : ini; i < fin; i++) {
+			byte b = buffer.get(i);
+			if (b == '.' && !enFraccion) {
+				enFraccion = true;
+			} else if (b >= '0' && b <= '9') {
+				// Por encima de 2^24 ya no se usa la mantisa, basta con que no desborde
+				if (mantisa < MANTISA_EXACTA) mantisa = mantisa * 10 + (b - '0');
+				if (enFraccion) decimales++;
+			} else {
+				throw new NumberFormatException("Valor numérico incorrecto: " + texto(campo));
+			}
+		}
+		if (mantisa >= MANTISA_EXACTA || decimales >= POTENCIAS_10.length) {
+			return Float.parseFloat(texto(campo));
+		}
+		float valor = mantisa / POTENCIAS_10[decimales];
+		return negativo ? -valor : valor;
+	}
+
+	/**
+	 * @return Todos los campos de la fila actual como cadenas.
+	 */
+	public String[] campos() {
+		String[] campos = new String[numCampos];
+		for (int i = 0; i < numCampos; i++) {
+			campos[i] = texto(i);
+		}
+		return campos;
+	}
+
+	/**
+	 * Divide una línea ya leída según RFC-4180, respetando las comas entre comillas.
+	 * Sirve para los caminos que trabajan con líneas de texto en lugar de con el archivo mapeado.
+	 *
+	 * @param linea La línea a dividir.
+	 * @return Los campos de la línea.
+	 */
+	public static String[] dividirLinea(String linea) {
+		List<String> campos = new ArrayList<>(16);
+		StringBuilder campo = new StringBuilder();
+		boolean entreComillas = false;
+		for (int i = 0; i < linea.length(); i++) {
+			char c = linea.charAt(i);
+			if (entreComillas) {
+				if (c == '"') {
+					if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+						campo.append('"');
+						i++;
+					} else {
+						entreComillas = false;
+					}
+				} else {
+					campo.append(c);
+				}
+			} else if (c == '"') {
+				entreComillas = true;
+			} else if (c == ',') {
+				campos.add(campo.toString());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add(campo.toString());
+		return campos.toArray(new String[0]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		canal.close();
+	}
+}
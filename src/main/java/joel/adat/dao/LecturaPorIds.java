@@ -0,0 +1,69 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.UnidadDeTrabajo;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Carga varias entidades a partir de sus IDs con pocas consultas, para los métodos
+ * {@code listaModelosPorId} de los DAO.
+ *
+ * <p>Usa la carga múltiple de Hibernate: las entidades que ya están en la sesión o en la caché de
+ * segundo nivel no se vuelven a pedir y el resto se piden con {@code WHERE id IN (...)} en bloques de
+ * {@link #TAM_BLOQUE} IDs. El resultado respeta el orden de los IDs recibidos.</p>
+ */
+class LecturaPorIds {
+
+	// IDs por consulta, para no pasar del límite de parámetros ni generar sentencias enormes
+	static final int TAM_BLOQUE = 500;
+
+	private LecturaPorIds() {
+	}
+
+	/**
+	 * Carga las entidades de los IDs indicados.
+	 *
+	 * @param tipo La clase de la entidad.
+	 * @param ids Los IDs a cargar.
+	 * @return Las entidades en el mismo orden que los IDs; los que no existen se omiten.
+	 */
+	static <T> List<T> cargar(Class<T> tipo, Collection<Integer> ids) {
+		return cargar(tipo, ids, null);
+	}
+
+	/**
+	 * Carga las entidades de los IDs indicados junto con las asociaciones de un grafo con nombre.
+	 *
+	 * @param tipo La clase de la entidad.
+	 * @param ids Los IDs a cargar.
+	 * @param grafo El nombre del {@code @NamedEntityGraph} de la entidad, o null para no traer asociaciones.
+	 * @return Las entidades en el mismo orden que los IDs; los que no existen se omiten.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> List<T> cargar(Class<T> tipo, Collection<Integer> ids, String grafo) {
+		if (ids.isEmpty()) return new ArrayList<>();
+		try (UnidadDeTrabajo unidad = UnidadDeTrabajo.abrirLectura()) {
+			Session session = unidad.getSession();
+			MultiIdentifierLoadAccess<T> carga = session.byMultipleIds(tipo);
+			if (grafo != null) {
+				carga.with((RootGraph<T>) session.getEntityGraph(grafo), GraphSemantic.FETCH);
+			}
+			List<T> entidades = new ArrayList<>(carga
+					.enableSessionCheck(true)
+					.enableOrderedReturn(true)
+					.withBatchSize(TAM_BLOQUE)
+					.multiLoad(new ArrayList<>(ids)));
+			// Con el orden activado, los IDs que no existen devuelven null en su posición
+			entidades.removeIf(Objects::isNull);
+			unidad.confirmar();
+			return entidades;
+		}
+	}
+}
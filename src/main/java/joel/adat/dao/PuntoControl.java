@@ -0,0 +1,129 @@
+package joel.adat.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Clase que guarda en disco hasta dónde ha llegado una carga del CSV, para poder reanudarla si se corta.
+ *
+ * <p>El punto de control guarda la posición en bytes de la siguiente fila pendiente, las filas ya
+ * procesadas y un hash SHA-256 del contenido del CSV. Si el archivo cambia, el hash deja de coincidir
+ * y el punto de control se ignora.</p>
+ *
+ * <p>El hash solo se calcula cuando hace falta, al comparar con un punto de control existente o al guardar
+ * el primero, porque leer un CSV de varios GB entero cuesta casi tanto como cargarlo.</p>
+ */
+public class PuntoControl {
+
+	private final Path CSV;
+	private final Path ruta;
+	private String hash;
+	private long posicion;
+	private long filas;
+
+	/**
+	 * Crea el punto de control del CSV indicado.
+	 *
+	 * @param CSV Ruta del archivo CSV.
+	 */
+	public PuntoControl(Path CSV) {
+		this.CSV = CSV;
+		this.ruta = CSV.resolveSibling(CSV.getFileName() + ".checkpoint");
+	}
+
+	/**
+	 * Lee el punto de control guardado, si existe y corresponde al mismo contenido del CSV.
+	 *
+	 * @return true si hay una carga anterior que se puede reanudar.
+	 * @throws IOException Si no se puede leer el archivo del punto de control.
+	 */
+	public boolean cargar() throws IOException {
+		if (!Files.exists(ruta)) return false;
+		Properties propiedades = new Properties();
+		try (InputStream in = Files.newInputStream(ruta)) {
+			propiedades.load(in);
+		}
+		if (!hash().equals(propiedades.getProperty("hash"))) {
+			System.out.println("El CSV ha cambiado desde la última carga; se empieza desde el principio.");
+			return false;
+		}
+		posicion = Long.parseLong(propiedades.getProperty("posicion"));
+		filas = Long.parseLong(propiedades.getProperty("filas"));
+		return true;
+	}
+
+	/**
+	 * Guarda el punto de control. Se escribe primero en un archivo temporal y se renombra, para que
+	 * un corte a mitad de escritura no deje un punto de control corrupto.
+	 *
+	 * @param posicion Posición en bytes de la siguiente fila pendiente.
+	 * @param filas Número de filas ya procesadas.
+	 * @throws IOException Si no se puede escribir el archivo.
+	 */
+	public void guardar(long posicion, long filas) throws IOException {
+		this.posicion = posicion;
+		this.filas = filas;
+		Properties propiedades = new Properties();
+		propiedades.setProperty("hash", hash());
+		propiedades.setProperty("posicion", String.valueOf(posicion));
+		propiedades.setProperty("filas", String.valueOf(filas));
+		Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporal)) {
+			propiedades.store(out, "Punto de control de la carga del CSV");
+		}
+		Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Borra el punto de control cuando la carga termina.
+	 *
+	 * @throws IOException Si no se puede borrar el archivo.
+	 */
+	public void borrar() throws IOException {
+		Files.deleteIfExists(ruta);
+	}
+
+	public long getPosicion() {
+		return posicion;
+	}
+
+	public long getFilas() {
+		return filas;
+	}
+
+	/**
+	 * Devuelve el hash del contenido del CSV, calculándolo la primera vez que se pide.
+	 */
+	private String hash() throws IOException {
+		if (hash == null) {
+			hash = calcularHash(CSV);
+		}
+		return hash;
+	}
+
+	private static String calcularHash(Path CSV) throws IOException {
+		try (FileChannel canal = FileChannel.open(CSV, StandardOpenOption.READ)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+			while (canal.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
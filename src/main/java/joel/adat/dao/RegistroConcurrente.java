@@ -0,0 +1,225 @@
+package joel.adat.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Versión segura entre hilos de {@link DiccionarioDimensiones}, para que varios hilos que cargan archivos
+ * distintos compartan las dimensiones sin insertar dos veces el mismo equipo, deporte o deportista.
+ *
+ * <p>Cada clave natural se asocia a un {@link CompletableFuture} con su ID. El primer hilo que la
+ * registra con {@code putIfAbsent} es el único que la inserta; los demás esperan a que ese hilo confirme
+ * su transacción y complete el futuro. Un hilo inserta y confirma siempre sus propias claves antes de
+ * esperar las de otros, así que no puede haber esperas circulares. Si el hilo que inserta una clave
+ * falla, la quita del mapa y los que la esperaban la vuelven a reclamar.</p>
+ */
+public class RegistroConcurrente {
+
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> deportes = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> equipos = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> olimpiadas = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> eventos = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> deportistas = new ConcurrentHashMap<>();
+	private final Set<Long> participaciones = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Crea el registro a partir de las claves ya existentes en la base de datos.
+	 *
+	 * @param inicial Un diccionario ya cargado con {@link DiccionarioDimensiones#cargar(Connection)}.
+	 */
+	public RegistroConcurrente(DiccionarioDimensiones inicial) {
+		copiar(inicial.getDeportes(), deportes);
+		copiar(inicial.getEquipos(), equipos);
+		copiar(inicial.getOlimpiadas(), olimpiadas);
+		copiar(inicial.getEventos(), eventos);
+		copiar(inicial.getDeportistas(), deportistas);
+		participaciones.addAll(inicial.getParticipaciones());
+	}
+
+	private static void copiar(Map<String, Integer> origen, Map<String, CompletableFuture<Integer>> destino) {
+		for (Map.Entry<String, Integer> entrada : origen.entrySet()) {
+			destino.put(entrada.getKey(), CompletableFuture.completedFuture(entrada.getValue()));
+		}
+	}
+
+	/**
+	 * Inserta y confirma las dimensiones del lote que ningún hilo ha registrado todavía, espera a las
+	 * que están insertando otros hilos y devuelve las participaciones nuevas del lote.
+	 *
+	 * @param conexion La conexión del hilo, sin autocommit.
+	 * @param lote Las filas leídas del CSV.
+	 * @return Las participaciones del lote que todavía no existen.
+	 * @throws SQLException Si falla alguna inserción.
+	 */
+	public List<DiccionarioDimensiones.ParticipacionPendiente> resolverLote(Connection conexion, List<FilaCsv> lote)
+			throws SQLException {
+		List<Reclamadas> propias = new ArrayList<>();
+		try {
+			// Primer nivel: dimensiones que no dependen de otras
+			// Si un hilo que tenía reclamada alguna clave falla, la libera y se vuelve a reclamar aquí
+			do {
+				Reclamadas nuevosDeportes = reclamar(deportes, lote, FilaCsv::getDeporte, propias);
+				Reclamadas nuevosEquipos = reclamar(equipos, lote, FilaCsv::claveEquipo, propias);
+				Reclamadas nuevasOlimpiadas = reclamar(olimpiadas, lote, FilaCsv::claveOlimpiada, propias);
+				Reclamadas nuevosDeportistas = reclamar(deportistas, lote, FilaCsv::claveDeportista, propias);
+				insertar(conexion, "INSERT INTO Deporte (nombre) VALUES ", "(?)", nuevosDeportes, (ps, i, f) -> {
+					ps.setString(i, f.getDeporte());
+				});
+				insertar(conexion, "INSERT INTO Equipo (nombre, iniciales) VALUES ", "(?, ?)", nuevosEquipos, (ps, i, f) -> {
+					ps.setString(i, f.getEquipo());
+					ps.setString(i + 1, f.getNoc());
+				});
+				insertar(conexion, "INSERT INTO Olimpiada (nombre, anio, temporada, ciudad) VALUES ", "(?, ?, ?, ?)",
+						nuevasOlimpiadas, (ps, i, f) -> {
+							ps.setString(i, f.getJuegos());
+							ps.setInt(i + 1, f.getAnio());
+							ps.setString(i + 2, f.getTemporada());
+							ps.setString(i + 3, f.getCiudad());
+						});
+				insertar(conexion, "INSERT INTO Deportista (nombre, sexo, altura, peso) VALUES ", "(?, ?, ?, ?)",
+						nuevosDeportistas, (ps, i, f) -> {
+							ps.setString(i, f.getNombre());
+							ps.setString(i + 1, String.valueOf(f.getSexo()));
+							ps.setInt(i + 2, f.getAltura());
+							ps.setInt(i + 3, Math.round(f.getPeso()));
+						});
+				confirmar(conexion, propias);
+			} while (!esperar(deportes, lote, FilaCsv::getDeporte) || !esperar(equipos, lote, FilaCsv::claveEquipo)
+					|| !esperar(olimpiadas, lote, FilaCsv::claveOlimpiada)
+					|| !esperar(deportistas, lote, FilaCsv::claveDeportista));
+
+			// Segundo nivel: los eventos necesitan los IDs de la olimpiada y del deporte
+			do {
+				Reclamadas nuevosEventos = reclamar(eventos, lote, this::claveEvento, propias);
+				insertar(conexion, "INSERT INTO Evento (nombre, id_olimpiada, id_deporte) VALUES ", "(?, ?, ?)",
+						nuevosEventos, (ps, i, f) -> {
+							ps.setString(i, f.getEvento());
+							ps.setInt(i + 1, id(olimpiadas, f.claveOlimpiada()));
+							ps.setInt(i + 2, id(deportes, f.getDeporte()));
+						});
+				confirmar(conexion, propias);
+			} while (!esperar(eventos, lote, this::claveEvento));
+		} catch (SQLException | RuntimeException e) {
+			// Las claves que no se han podido insertar se liberan y se avisa a quien las esté esperando
+			for (Reclamadas reclamadas : propias) {
+				for (String clave : reclamadas.filas.keySet()) {
+					CompletableFuture<Integer> futuro = reclamadas.mapa.get(clave);
+					if (futuro != null && !futuro.isDone()) {
+						reclamadas.mapa.remove(clave, futuro);
+						futuro.completeExceptionally(e);
+					}
+				}
+			}
+			conexion.rollback();
+			throw e;
+		}
+
+		List<DiccionarioDimensiones.ParticipacionPendiente> pendientes = new ArrayList<>();
+		for (FilaCsv fila : lote) {
+			int idDeportista = id(deportistas, fila.claveDeportista());
+			int idEvento = id(eventos, claveEvento(fila));
+			if (participaciones.add(DiccionarioDimensiones.claveParticipacion(idDeportista, idEvento))) {
+				pendientes.add(new DiccionarioDimensiones.ParticipacionPendiente(idDeportista, idEvento,
+						id(equipos, fila.claveEquipo()), fila.getEdad(), fila.getMedalla()));
+			}
+		}
+		return pendientes;
+	}
+
+	/**
+	 * Registra como propias las claves del lote que ningún otro hilo ha registrado.
+	 */
+	private static Reclamadas reclamar(ConcurrentHashMap<String, CompletableFuture<Integer>> mapa, List<FilaCsv> lote,
+									   Function<FilaCsv, String> clave, List<Reclamadas> propias) {
+		Reclamadas reclamadas = new Reclamadas(mapa);
+		for (FilaCsv fila : lote) {
+			String k = clave.apply(fila);
+			if (reclamadas.filas.containsKey(k) || mapa.containsKey(k)) continue;
+			if (mapa.putIfAbsent(k, new CompletableFuture<>()) == null) {
+				reclamadas.filas.put(k, fila);
+			}
+		}
+		propias.add(reclamadas);
+		return reclamadas;
+	}
+
+	private static void insertar(Connection conexion, String insert, String grupo, Reclamadas reclamadas,
+								 DiccionarioDimensiones.Parametros<FilaCsv> parametros) throws SQLException {
+		if (reclamadas.filas.isEmpty()) return;
+		reclamadas.ids = DiccionarioDimensiones.insertarVariasFilas(conexion, insert, grupo,
+				new ArrayList<>(reclamadas.filas.values()), parametros, true);
+	}
+
+	/**
+	 * Confirma la transacción y después publica los IDs, para que ningún otro hilo use un ID que aún no es visible.
+	 */
+	private static void confirmar(Connection conexion, List<Reclamadas> propias) throws SQLException {
+		conexion.commit();
+		for (Reclamadas reclamadas : propias) {
+			if (reclamadas.ids == null) continue;
+			int i = 0;
+			for (String clave : reclamadas.filas.keySet()) {
+				reclamadas.mapa.get(clave).complete(reclamadas.ids.get(i++));
+			}
+		}
+	}
+
+	/**
+	 * Espera a que otros hilos confirmen las claves del lote que tienen reclamadas.
+	 *
+	 * @return false si alguna ya no está en el mapa porque el hilo que la insertaba ha fallado y la ha
+	 * liberado; hay que volver a reclamarla.
+	 */
+	private static boolean esperar(ConcurrentHashMap<String, CompletableFuture<Integer>> mapa, List<FilaCsv> lote,
+								   Function<FilaCsv, String> clave) {
+		for (FilaCsv fila : lote) {
+			CompletableFuture<Integer> futuro = mapa.get(clave.apply(fila));
+			if (futuro == null) return false;
+			try {
+				futuro.join();
+			} catch (CompletionException e) {
+				// Quien falla quita la clave del mapa antes de completar el futuro con el error
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Devuelve el ID de una clave ya resuelta con {@link #esperar}.
+	 */
+	private static int id(ConcurrentHashMap<String, CompletableFuture<Integer>> mapa, String clave) {
+		CompletableFuture<Integer> futuro = mapa.get(clave);
+		if (futuro == null || !futuro.isDone() || futuro.isCompletedExceptionally()) {
+			throw new IllegalStateException("La clave " + clave + " no tiene ID");
+		}
+		return futuro.join();
+	}
+
+	private String claveEvento(FilaCsv fila) {
+		return DiccionarioDimensiones.claveEvento(fila.getEvento(), id(olimpiadas, fila.claveOlimpiada()),
+				id(deportes, fila.getDeporte()));
+	}
+
+	/**
+	 * Claves de una dimensión que este hilo se ha comprometido a insertar.
+	 */
+	private static class Reclamadas {
+		final ConcurrentHashMap<String, CompletableFuture<Integer>> mapa;
+		final Map<String, FilaCsv> filas = new LinkedHashMap<>();
+		List<Integer> ids;
+
+		Reclamadas(ConcurrentHashMap<String, CompletableFuture<Integer>> mapa) {
+			this.mapa = mapa;
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package joel.adat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
@@ -8,7 +10,18 @@ import java.util.Objects;
  * Clase que representa un deporte, con su nombre.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "deporte")
 @Table(name = "Deporte")
+@NamedQueries({
+		@NamedQuery(name = "Deporte.porOlimpiada",
+				query = "SELECT DISTINCT d FROM ModeloEvento e JOIN e.deporte d" +
+						" WHERE e.olimpiada.idOlimpiada = :idOlimpiada ORDER BY d.idDeporte"),
+		@NamedQuery(name = "Deporte.idPorNombre",
+				query = "SELECT d.idDeporte FROM ModeloDeporte d WHERE d.nombreDeporte = :nombre"),
+		@NamedQuery(name = "Deporte.todos",
+				query = "FROM ModeloDeporte d ORDER BY d.idDeporte")
+})
 public class ModeloDeporte {
 
 	@Id
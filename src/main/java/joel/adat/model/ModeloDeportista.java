@@ -7,6 +7,16 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "Deportista")
+@NamedQueries({
+		@NamedQuery(name = "Deportista.porNombreParcial",
+				query = "FROM ModeloDeportista d WHERE d.nombreDeportista LIKE :cadena"),
+		@NamedQuery(name = "Deportista.porNombreParcialDesde",
+				query = "FROM ModeloDeportista d WHERE d.nombreDeportista LIKE :cadena" +
+						" AND d.idDeportista > :despuesDe ORDER BY d.idDeportista"),
+		@NamedQuery(name = "Deportista.idPorDatos",
+				query = "SELECT d.idDeportista FROM ModeloDeportista d WHERE d.nombreDeportista = :nombre" +
+						" AND d.sexo = :sexo AND d.peso = :peso AND d.altura = :altura")
+})
 public class ModeloDeportista {
 
 	@Id
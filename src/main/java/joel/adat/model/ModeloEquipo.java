@@ -1,13 +1,23 @@
 package joel.adat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Clase que representa un equipo en el contexto de eventos deportivos,
  * con su nombre oficial e iniciales.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "equipo")
 @Table(name = "Equipo")
+@NamedQueries({
+		@NamedQuery(name = "Equipo.idPorNombreEIniciales",
+				query = "SELECT e.idEquipo FROM ModeloEquipo e WHERE e.nombreEquipo = :nombre AND e.iniciales = :iniciales"),
+		@NamedQuery(name = "Equipo.todos",
+				query = "FROM ModeloEquipo")
+})
 public class ModeloEquipo {
 
 	@Id
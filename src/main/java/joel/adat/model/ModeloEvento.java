@@ -10,6 +10,19 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "Evento")
+@NamedQueries({
+		@NamedQuery(name = "Evento.porDeporteYOlimpiada",
+				query = "FROM ModeloEvento e WHERE e.deporte.idDeporte = :idDeporte AND e.olimpiada.idOlimpiada = :idOlimpiada" +
+						" ORDER BY e.idEvento"),
+		@NamedQuery(name = "Evento.idPorNombre",
+				query = "SELECT e.idEvento FROM ModeloEvento e WHERE e.nombreEvento = :nombreEvento" +
+						" AND e.olimpiada.idOlimpiada = :idOlimpiada AND e.deporte.idDeporte = :idDeporte"),
+		@NamedQuery(name = "Evento.todos",
+				query = "FROM ModeloEvento e ORDER BY e.idEvento")
+})
+// Las asociaciones son perezosas; las lecturas que van a mostrar el evento piden este grafo
+@NamedEntityGraph(name = "Evento.conDeporteYOlimpiada",
+		attributeNodes = {@NamedAttributeNode("deporte"), @NamedAttributeNode("olimpiada")})
 public class ModeloEvento {
 
 	@Id
@@ -20,11 +33,11 @@ public class ModeloEvento {
 	@Column(name = "nombre", nullable = false, length = 150)
 	private String nombreEvento;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_deporte", nullable = false)
 	private ModeloDeporte deporte;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_olimpiada", nullable = false)
 	private ModeloOlimpiada olimpiada;
 
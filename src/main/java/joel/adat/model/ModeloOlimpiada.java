@@ -1,13 +1,26 @@
 package joel.adat.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Objects;
 
 /**
  * Clase que representa una olimpiada, con detalles sobre su nombre, año, temporada y ciudad.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "olimpiada")
 @Table(name = "Olimpiada")
+@NamedQueries({
+		@NamedQuery(name = "Olimpiada.porTemporada",
+				query = "FROM ModeloOlimpiada o WHERE o.temporada = :temporada ORDER BY o.idOlimpiada"),
+		@NamedQuery(name = "Olimpiada.idPorDatos",
+				query = "SELECT o.idOlimpiada FROM ModeloOlimpiada o WHERE o.nombreOlimpiada = :nombre" +
+						" AND o.anio = :anio AND o.temporada = :temporada AND o.ciudad = :ciudad"),
+		@NamedQuery(name = "Olimpiada.todas",
+				query = "FROM ModeloOlimpiada o ORDER BY o.idOlimpiada")
+})
 public class ModeloOlimpiada {
 
 	@Id
@@ -8,6 +8,38 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "Participacion")
+@NamedQueries({
+		@NamedQuery(name = "Participacion.idPorDeportistaYEvento",
+				query = "SELECT p.idParticipacion FROM ModeloParticipacion p" +
+						" WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento"),
+		@NamedQuery(name = "Participacion.porDeportistaYEvento",
+				query = "FROM ModeloParticipacion p" +
+						" WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento"),
+		@NamedQuery(name = "Participacion.idsDeportistasPorEvento",
+				query = "SELECT p.deportista.idDeportista FROM ModeloParticipacion p WHERE p.evento.idEvento = :idEvento"),
+		@NamedQuery(name = "Participacion.historialDeportista",
+				query = "SELECT p FROM ModeloParticipacion p JOIN FETCH p.deportista JOIN FETCH p.equipo" +
+						" JOIN FETCH p.evento e JOIN FETCH e.deporte JOIN FETCH e.olimpiada o" +
+						" WHERE p.deportista.idDeportista = :idDeportista ORDER BY o.anio, o.temporada, e.nombreEvento"),
+		@NamedQuery(name = "Participacion.participantesEvento",
+				query = "SELECT new joel.adat.model.ParticipanteEvento(d.nombreDeportista, d.altura, d.peso, p.edad," +
+						" eq.nombreEquipo, p.medalla) FROM ModeloParticipacion p JOIN p.deportista d JOIN p.equipo eq" +
+						" WHERE p.evento.idEvento = :idEvento ORDER BY d.nombreDeportista"),
+		@NamedQuery(name = "Participacion.idsEventosPorDeportista",
+				query = "SELECT p.evento.idEvento FROM ModeloParticipacion p WHERE p.deportista.idDeportista = :idDeportista"),
+		@NamedQuery(name = "Participacion.editarMedalla",
+				query = "UPDATE ModeloParticipacion p SET p.medalla = :medalla" +
+						" WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento"),
+		@NamedQuery(name = "Participacion.eliminar",
+				query = "DELETE FROM ModeloParticipacion p" +
+						" WHERE p.deportista.idDeportista = :idDeportista AND p.evento.idEvento = :idEvento")
+})
+// Las asociaciones son perezosas; las lecturas que van a mostrar la participación piden este grafo
+@NamedEntityGraph(name = "Participacion.completa",
+		attributeNodes = {@NamedAttributeNode("deportista"), @NamedAttributeNode("equipo"),
+				@NamedAttributeNode(value = "evento", subgraph = "evento")},
+		subgraphs = @NamedSubgraph(name = "evento",
+				attributeNodes = {@NamedAttributeNode("deporte"), @NamedAttributeNode("olimpiada")}))
 public class ModeloParticipacion {
 
 	@Id
@@ -15,15 +47,15 @@ public class ModeloParticipacion {
 	@Column(name = "id_participacion")
 	private int idParticipacion;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_deportista", nullable = false)
 	private ModeloDeportista deportista;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_evento", nullable = false)
 	private ModeloEvento evento;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_equipo", nullable = false)
 	private ModeloEquipo equipo;
 
@@ -0,0 +1,62 @@
+package joel.adat.model;
+
+/**
+ * Fila de solo lectura con los datos de un participante de un evento que muestra el menú: nombre,
+ * altura y peso del deportista, su edad en el evento, su equipo y su medalla.
+ *
+ * <p>No es una entidad: se construye directamente desde una proyección de la consulta
+ * {@code Participacion.participantesEvento}, sin cargar el deportista, el equipo ni el evento.</p>
+ */
+public class ParticipanteEvento {
+
+	private final String nombreDeportista;
+	private final int altura;
+	private final float peso;
+	private final int edad;
+	private final String nombreEquipo;
+	private final String medalla;
+
+	public ParticipanteEvento(String nombreDeportista, int altura, float peso, int edad, String nombreEquipo, String medalla) {
+		this.nombreDeportista = nombreDeportista;
+		this.altura = altura;
+		this.peso = peso;
+		this.edad = edad;
+		this.nombreEquipo = nombreEquipo;
+		this.medalla = medalla;
+	}
+
+	public String getNombreDeportista() {
+		return nombreDeportista;
+	}
+
+	public int getAltura() {
+		return altura;
+	}
+
+	public float getPeso() {
+		return peso;
+	}
+
+	public int getEdad() {
+		return edad;
+	}
+
+	public String getNombreEquipo() {
+		return nombreEquipo;
+	}
+
+	public String getMedalla() {
+		return medalla;
+	}
+
+	/**
+	 * Devuelve el participante con el mismo formato que {@link ModeloParticipacion#toString()}.
+	 *
+	 * @return Nombre, altura, peso, edad, equipo y medalla separados por comas.
+	 */
+	@Override
+	public String toString() {
+		return this.nombreDeportista + "," + this.altura + "," + this.peso + "," + this.edad + "," + this.nombreEquipo
+				+ "," + this.medalla;
+	}
+}
@@ -0,0 +1,163 @@
+package joel.adat.dao;
+
+import joel.adat.bbdd.HibernateUtil;
+import joel.adat.model.ModeloDeporte;
+import joel.adat.model.ModeloDeportista;
+import joel.adat.model.ModeloEquipo;
+import joel.adat.model.ModeloEvento;
+import joel.adat.model.ModeloOlimpiada;
+import joel.adat.model.ModeloParticipacion;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba cuántas sentencias SQL lanza cada lectura de los DAO de eventos y participaciones y que lo
+ * que devuelven se puede usar después de cerrar la sesión.
+ *
+ * <p>Con las asociaciones perezosas cada lectura pide lo que necesita con un grafo o una consulta con
+ * {@code JOIN FETCH}; si alguna deja de hacerlo, aquí falla por sentencias de más o por una
+ * {@link org.hibernate.LazyInitializationException} al usar el resultado. Se ejecuta con el perfil de
+ * pruebas contra una base de datos H2 en memoria que Hibernate crea al arrancar.</p>
+ */
+class ConteoSentenciasTest {
+
+	private static Statistics estadisticas;
+	private static int idDeportista;
+	private static int idEvento;
+	private static int idDeporte;
+	private static int idOlimpiada;
+
+	@BeforeAll
+	static void arrancar() {
+		System.setProperty("olimpiadas.perfil", "test");
+		System.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+		System.setProperty("hibernate.connection.url", "jdbc:h2:mem:olimpiadas;MODE=MySQL;DB_CLOSE_DELAY=-1");
+		System.setProperty("hibernate.connection.username", "sa");
+		System.setProperty("hibernate.connection.password", "");
+		System.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+		System.setProperty("hibernate.consultasLentas.archivo", "target/consultas-lentas-test.log");
+
+		try (Session session = HibernateUtil.openSession()) {
+			Transaction tx = session.beginTransaction();
+			ModeloDeporte deporte = new ModeloDeporte("Athletics");
+			ModeloOlimpiada olimpiada = new ModeloOlimpiada("1992 Summer", 1992, "Summer", "Barcelona");
+			ModeloEquipo equipo = new ModeloEquipo("Spain", "ESP");
+			ModeloDeportista deportista = new ModeloDeportista("Fermín Cacho Ruiz", 'M', 175, 63);
+			ModeloEvento evento = new ModeloEvento("Athletics Men's 1,500 metres", deporte, olimpiada);
+			ModeloEvento otroEvento = new ModeloEvento("Athletics Men's 5,000 metres", deporte, olimpiada);
+			session.persist(deporte);
+			session.persist(olimpiada);
+			session.persist(equipo);
+			session.persist(deportista);
+			session.persist(evento);
+			session.persist(otroEvento);
+			session.persist(new ModeloParticipacion(deportista, evento, equipo, 23, "Gold"));
+			session.persist(new ModeloParticipacion(deportista, otroEvento, equipo, 23, "NA"));
+			tx.commit();
+
+			idDeportista = deportista.getIdDeportista();
+			idEvento = evento.getIdEvento();
+			idDeporte = deporte.getIdDeporte();
+			idOlimpiada = olimpiada.getIdOlimpiada();
+		}
+
+		estadisticas = HibernateUtil.getSessionFactory().getStatistics();
+		estadisticas.setStatisticsEnabled(true);
+	}
+
+	@AfterAll
+	static void cerrar() {
+		HibernateUtil.shutdown();
+	}
+
+	@BeforeEach
+	void vaciarCaches() {
+		// Sin listados ni entidades guardados, para contar también la consulta de la primera lectura
+		CacheListas.vaciarTodas();
+		HibernateUtil.getSessionFactory().getCache().evictAllRegions();
+	}
+
+	@Test
+	void createById() {
+		comprobar(1, () -> DaoEvento.createById(idEvento), String::valueOf);
+	}
+
+	@Test
+	void listaModelosPorId() {
+		List<Integer> idsEventos = DaoParticipacion.getIdEvento(idDeportista);
+		comprobar(1, () -> DaoEvento.listaModelosPorId(idsEventos), String::valueOf);
+	}
+
+	@Test
+	void crearListaModelosPorDeporteYOlimpiada() {
+		comprobar(1, () -> DaoEvento.crearListaModelosPorDeporteYOlimpiada(idDeporte, idOlimpiada), String::valueOf);
+		// La segunda vez el listado sale de la caché
+		comprobar(0, () -> DaoEvento.crearListaModelosPorDeporteYOlimpiada(idDeporte, idOlimpiada), String::valueOf);
+	}
+
+	@Test
+	void existeIdParticipacion() {
+		comprobar(1, () -> DaoParticipacion.existeIdParticipacion(idDeportista, idEvento), String::valueOf);
+	}
+
+	@Test
+	void darIdDeportista() {
+		comprobar(1, () -> DaoParticipacion.darIdDeportista(idEvento), String::valueOf);
+	}
+
+	@Test
+	void getIdEvento() {
+		comprobar(1, () -> DaoParticipacion.getIdEvento(idDeportista), String::valueOf);
+	}
+
+	@Test
+	void participantesEvento() {
+		comprobar(1, () -> DaoParticipacion.participantesEvento(idEvento), String::valueOf);
+	}
+
+	@Test
+	void crearModeloParticipacion() {
+		comprobar(1, () -> DaoParticipacion.crearModeloParticipacion(idDeportista, idEvento),
+				p -> p + "," + p.getEvento());
+	}
+
+	@Test
+	void historialDeportista() {
+		comprobar(1, () -> DaoParticipacion.historialDeportista(idDeportista),
+				historial -> historial.stream().map(ConteoSentenciasTest::lineaHistorial).collect(Collectors.joining("; ")));
+	}
+
+	/**
+	 * Ejecuta una lectura, cuenta las sentencias que prepara y usa el resultado con la sesión ya cerrada.
+	 *
+	 * @param maximo Las sentencias que debería lanzar como mucho.
+	 * @param lectura La llamada al DAO.
+	 * @param uso Lo que se hace después con el resultado, como lo haría el menú.
+	 */
+	private static <T> void comprobar(long maximo, Supplier<T> lectura, Function<T, String> uso) {
+		estadisticas.clear();
+		T resultado = lectura.get();
+		long sentencias = estadisticas.getPrepareStatementCount();
+		assertDoesNotThrow(() -> uso.apply(resultado), "El resultado tiene asociaciones sin cargar");
+		assertTrue(sentencias <= maximo, "Sentencias: " + sentencias + ", máximo: " + maximo);
+	}
+
+	private static String lineaHistorial(ModeloParticipacion part) {
+		return part.getEvento().getDeporte().getNombreDeporte() + "," + part.getEdad() + ","
+				+ part.getEvento().getNombreEvento() + "," + part.getEquipo().getNombreEquipo() + ","
+				+ part.getEvento().getOlimpiada().getNombreOlimpiada() + "," + part.getMedalla();
+	}
+}